@@ -0,0 +1,369 @@
+package com.reactnativesoundmanagement;
+
+import android.os.Build;
+import android.os.Process;
+import android.annotation.TargetApi;
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.io.IOException;
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring consumer that encodes the captured PCM to AAC with MediaCodec on its
+ * own thread, into an .m4a/.mp4 through MediaMuxer or a raw ADTS .aac. The
+ * ring is the bounded queue between capture and encoder: when encoding falls
+ * behind by a whole ring the oldest slots are dropped and counted, the
+ * capture thread never waits.
+ *
+ * With a {@link VoiceActivity} inactive slots are skipped (pause), or held
+ * back until speech resumes and dropped at the end (trim). Held slots are
+ * re-read from the ring, so a pause is encoded as kept silence once it nears
+ * the ring's length; trailing silence is only trimmed up to that length.
+ */
+class AacEncoder implements PcmSink, Runnable {
+  private static final String MIME = "audio/mp4a-latm";
+  private static final long DEQUEUE_TIMEOUT_US = 10000;
+
+  private final PcmRingBuffer mRing;
+  private PcmRingBuffer.Cursor mCursor; // replaced in start()
+  private final int mSampleRate;
+  private final int mFrameBytes;
+  private final long mParkNanos;
+  private final AacFormat.Output mOutput;
+  private final int mSampleRateIndex;
+  private final int mChannels;
+  private final Metrics mMetrics;
+  private final byte[] mStaging;
+  private final byte[] mAdtsHeader = new byte[AacFormat.ADTS_HEADER_BYTES];
+  private final MediaCodec.BufferInfo mInfo = new MediaCodec.BufferInfo();
+  private MediaCodec mCodec;
+  private ByteBuffer[] mInputBuffers;
+  private ByteBuffer[] mOutputBuffers;
+  private Object mMuxer; // MediaMuxer, API 18+
+  private int mTrack = -1;
+  private FileOutputStream mAdtsStream;
+  private FileChannel mAdtsChannel;
+  private long mFramesQueued = 0;
+  private long mMaxLag = 0;
+  private volatile boolean mRunning = false;
+  private Thread mThread;
+  private IOException mError;
+  private final VoiceActivity mVoiceActivity;
+  private boolean mSpoken = false;
+  private long mSilenceFrom = -1; // first held slot under trim
+  private final long mHoldSlots; // held slots are encoded before the ring overwrites them
+
+  /**
+   * @param metrics gets "encodeSlot" latencies and "encoder.inputStall" counts
+   * @param voiceActivity silence handling, or null to keep everything
+   */
+  AacEncoder(PcmCapture capture, File file, AacFormat.Profile profile, int bitrate, Metrics metrics,
+      VoiceActivity voiceActivity) throws IOException {
+    mRing = capture.ring();
+    mCursor = mRing.newCursor();
+    mSampleRate = capture.sampleRate;
+    mChannels = capture.channels;
+    mFrameBytes = 2 * capture.channels;
+    mParkNanos = PcmCapture.SLOT_MILLIS * 1000000L / 2;
+    mMetrics = metrics;
+    mVoiceActivity = voiceActivity;
+    mStaging = new byte[mRing.slotBytes()];
+    // A quarter of the ring stays as margin for the capture running ahead
+    mHoldSlots = mRing.capacity() - Math.max(1, mRing.capacity() / 4);
+    mOutput = AacFormat.Output.fromPath(file.getPath());
+    mSampleRateIndex = AacFormat.sampleRateIndex(mSampleRate);
+
+    if (mOutput == AacFormat.Output.ADTS) {
+      if (mSampleRateIndex < 0)
+        throw new IllegalArgumentException("ADTS can't carry " + mSampleRate + "Hz");
+      // ADTS headers only signal AAC-LC
+      profile = AacFormat.Profile.LC;
+    } else if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+      throw new IllegalStateException("MediaMuxer needs API 18, record to .aac instead");
+    }
+
+    MediaFormat format = MediaFormat.createAudioFormat(MIME, mSampleRate, mChannels);
+    format.setInteger(MediaFormat.KEY_AAC_PROFILE, profile.objectType);
+    format.setInteger(MediaFormat.KEY_BIT_RATE, bitrate);
+    format.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, mRing.slotBytes());
+
+    mCodec = MediaCodec.createEncoderByType(MIME);
+    try {
+      mCodec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+      if (mOutput == AacFormat.Output.ADTS) {
+        mAdtsStream = new FileOutputStream(file);
+        mAdtsChannel = mAdtsStream.getChannel();
+      } else {
+        mMuxer = createMuxer(file);
+      }
+    } catch (IOException | RuntimeException e) {
+      release();
+      throw e;
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+  private static Object createMuxer(File file) throws IOException {
+    return new MediaMuxer(file.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+  }
+
+  @Override
+  public void start(int backSlots) {
+    mCursor = mRing.newCursor(backSlots);
+    mCodec.start();
+    mInputBuffers = mCodec.getInputBuffers();
+    mOutputBuffers = mCodec.getOutputBuffers();
+    mRunning = true;
+    mThread = new Thread(this, "SoundManagementAacEncoder");
+    mThread.start();
+  }
+
+  /**
+   * Encodes what the capture already published, ends the stream and closes
+   * the file.
+   */
+  @Override
+  public void finish() throws IOException {
+    mRunning = false;
+    if (mThread != null) {
+      LockSupport.unpark(mThread);
+      try {
+        mThread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      mThread = null;
+    }
+
+    release();
+    if (mError != null)
+      throw mError;
+  }
+
+  @Override
+  public long dropped() {
+    return mCursor.dropped();
+  }
+
+  @Override
+  public long maxLag() {
+    return mMaxLag;
+  }
+
+  @Override
+  public void run() {
+    // Below the capture thread: encoding only has to keep up on average
+    Process.setThreadPriority(Process.THREAD_PRIORITY_DEFAULT);
+    try {
+      while (true) {
+        long seq = mCursor.next();
+        mMaxLag = Math.max(mMaxLag, mCursor.lag());
+        if (seq < 0) {
+          if (!mRunning)
+            break;
+          drain(false);
+          LockSupport.parkNanos(mParkNanos);
+          continue;
+        }
+
+        if (!keep(seq)) {
+          mCursor.advance(seq);
+          continue;
+        }
+
+        // Copy out first, a slot the capture overwrote must not reach the codec
+        ByteBuffer view = mCursor.view(seq);
+        int length = view.remaining();
+        view.get(mStaging, 0, length);
+        if (!mCursor.advance(seq))
+          continue;
+
+        long start = Metrics.now();
+        queue(mStaging, length, false);
+        drain(false);
+        mMetrics.record("encodeSlot", start);
+      }
+
+      queue(mStaging, 0, true);
+      drain(true);
+    } catch (IOException e) {
+      mError = e;
+    } catch (RuntimeException e) {
+      mError = new IOException(e.toString());
+    }
+  }
+
+  /**
+   * Whether slot seq is encoded now under the silence mode. Under trim a
+   * silent stretch after speech is held, and encoded once speech resumes.
+   */
+  private boolean keep(long seq) throws IOException {
+    if (mVoiceActivity == null)
+      return true;
+
+    boolean active = mVoiceActivity.isActive(seq);
+    switch (mVoiceActivity.silence) {
+      case PAUSE:
+        return active;
+      case TRIM:
+        if (!active) {
+          if (mSpoken && mSilenceFrom < 0) {
+            mSilenceFrom = seq;
+          } else if (mSilenceFrom >= 0 && mRing.writeSequence() - mSilenceFrom >= mHoldSlots) {
+            // Too long to hold: keep it as inner silence rather than lose it
+            replay(mSilenceFrom, seq);
+            mSilenceFrom = seq;
+          }
+          return false;
+        }
+        mSpoken = true;
+        if (mSilenceFrom >= 0) {
+          replay(mSilenceFrom, seq);
+          mSilenceFrom = -1;
+        }
+        return true;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Encodes the held slots from..to (exclusive) the ring still has.
+   */
+  private void replay(long from, long to) throws IOException {
+    for (long seq = from; seq < to; seq++) {
+      if (!mRing.isValid(seq))
+        continue;
+      ByteBuffer view = mCursor.view(seq);
+      int length = view.remaining();
+      view.get(mStaging, 0, length);
+      if (mRing.isValid(seq))
+        queue(mStaging, length, false);
+    }
+  }
+
+  /**
+   * Feeds length bytes to the codec, splitting them over input buffers.
+   */
+  private void queue(byte[] data, int length, boolean endOfStream) throws IOException {
+    int offset = 0;
+    while (true) {
+      int index = mCodec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+      if (index < 0) {
+        // Encoder is behind, make room by taking output
+        mMetrics.increment("encoder.inputStall");
+        drain(false);
+        continue;
+      }
+
+      ByteBuffer input = mInputBuffers[index];
+      input.clear();
+      int bytes = Math.min(length - offset, input.remaining());
+      bytes -= bytes % mFrameBytes;
+      input.put(data, offset, bytes);
+      offset += bytes;
+
+      long presentationUs = mFramesQueued * 1000000L / mSampleRate;
+      mFramesQueued += bytes / mFrameBytes;
+      boolean last = endOfStream && offset >= length;
+      mCodec.queueInputBuffer(index, 0, bytes, presentationUs, last ? MediaCodec.BUFFER_FLAG_END_OF_STREAM : 0);
+      if (offset >= length)
+        return;
+    }
+  }
+
+  /**
+   * Writes encoded frames out; with untilEnd it waits for the end of stream.
+   */
+  private void drain(boolean untilEnd) throws IOException {
+    while (true) {
+      int index = mCodec.dequeueOutputBuffer(mInfo, untilEnd ? DEQUEUE_TIMEOUT_US : 0);
+      if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+        if (!untilEnd)
+          return;
+        continue;
+      }
+      if (index == MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED) {
+        mOutputBuffers = mCodec.getOutputBuffers();
+        continue;
+      }
+      if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+        if (mMuxer != null)
+          startMuxer(mCodec.getOutputFormat());
+        continue;
+      }
+      if (index < 0)
+        continue;
+
+      ByteBuffer output = mOutputBuffers[index];
+      output.position(mInfo.offset);
+      output.limit(mInfo.offset + mInfo.size);
+      // Codec config travels in the output format for the muxer, ADTS needs none
+      if (mInfo.size > 0 && (mInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0)
+        write(output);
+      mCodec.releaseOutputBuffer(index, false);
+
+      if ((mInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0)
+        return;
+    }
+  }
+
+  private void write(ByteBuffer frame) throws IOException {
+    if (mAdtsChannel != null) {
+      AacFormat.adtsHeader(mAdtsHeader, frame.remaining(), mSampleRateIndex, mChannels);
+      mAdtsChannel.write(ByteBuffer.wrap(mAdtsHeader));
+      while (frame.hasRemaining())
+        mAdtsChannel.write(frame);
+    } else if (mTrack >= 0) {
+      writeSample(frame);
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+  private void startMuxer(MediaFormat format) {
+    MediaMuxer muxer = (MediaMuxer) mMuxer;
+    mTrack = muxer.addTrack(format);
+    muxer.start();
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+  private void writeSample(ByteBuffer frame) {
+    ((MediaMuxer) mMuxer).writeSampleData(mTrack, frame, mInfo);
+  }
+
+  private void release() throws IOException {
+    if (mCodec != null) {
+      try {
+        mCodec.stop();
+      } catch (IllegalStateException e) {}
+      mCodec.release();
+      mCodec = null;
+    }
+    if (mMuxer != null) {
+      releaseMuxer();
+      mMuxer = null;
+    }
+    if (mAdtsStream != null) {
+      mAdtsStream.close();
+      mAdtsStream = null;
+      mAdtsChannel = null;
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+  private void releaseMuxer() {
+    MediaMuxer muxer = (MediaMuxer) mMuxer;
+    try {
+      if (mTrack >= 0)
+        muxer.stop();
+    } finally {
+      muxer.release();
+    }
+  }
+}
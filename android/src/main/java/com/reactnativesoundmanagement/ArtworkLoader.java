@@ -0,0 +1,210 @@
+package com.reactnativesoundmanagement;
+
+import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.LruCache;
+import android.graphics.Bitmap;
+import android.content.Context;
+import android.graphics.BitmapFactory;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Map;
+import java.util.Set;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.FileOutputStream;
+import java.net.URLConnection;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Fetches notification artwork off the calling thread and keeps downsampled
+ * bitmaps in a byte-bounded memory LRU, backed by a size-capped disk cache
+ * of the downsampled images. A URL that failed is not tried again for a
+ * while, so a dead link doesn't cost a download per notification update.
+ */
+class ArtworkLoader {
+  interface Listener {
+    void onArtwork(String url, Bitmap bitmap);
+  }
+
+  private static final String LOG_TAG = "ArtworkLoader";
+  private static final long DISK_CACHE_BYTES = 10 * 1024 * 1024;
+  private static final int CONNECT_TIMEOUT_MS = 10000;
+  private static final long FAILURE_TTL_MS = 5 * 60 * 1000;
+
+  private final LruCache<String, Bitmap> mMemoryCache;
+  private final File mDiskDir;
+  private final int mTargetSize;
+  private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+  private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+  private final Set<String> mInFlight = new HashSet<>();
+  private final Map<String, Long> mFailedAt = new HashMap<>(); // guarded by mInFlight
+
+  /**
+   * @param targetSize edge in px the artwork is downsampled towards
+   */
+  ArtworkLoader(Context context, int targetSize) {
+    int memoryBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 32, 8 * 1024 * 1024);
+    mMemoryCache = new LruCache<String, Bitmap>(memoryBytes) {
+      @Override
+      protected int sizeOf(String key, Bitmap bitmap) {
+        return bitmap.getByteCount();
+      }
+    };
+    mDiskDir = new File(context.getCacheDir(), "artwork");
+    mTargetSize = targetSize;
+  }
+
+  /**
+   * Memory cache only, never blocks.
+   */
+  Bitmap get(String url) {
+    return mMemoryCache.get(url);
+  }
+
+  /**
+   * Loads from disk or network in the background, the listener runs on the
+   * main thread. Concurrent loads of the same url are merged, a url that
+   * failed in the last few minutes is skipped.
+   */
+  void load(final String url, final Listener listener) {
+    synchronized (mInFlight) {
+      Long failedAt = mFailedAt.get(url);
+      if (failedAt != null) {
+        if (SystemClock.elapsedRealtime() - failedAt < FAILURE_TTL_MS)
+          return;
+        mFailedAt.remove(url);
+      }
+      if (!mInFlight.add(url))
+        return;
+    }
+
+    try {
+      mExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          fetchAndDeliver(url, listener);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // shut down
+      synchronized (mInFlight) {
+        mInFlight.remove(url);
+      }
+    }
+  }
+
+  /**
+   * Stops background loads, pending listeners are dropped.
+   */
+  void shutdown() {
+    mExecutor.shutdownNow();
+  }
+
+  private void fetchAndDeliver(final String url, final Listener listener) {
+    final Bitmap bitmap = fetch(url);
+    synchronized (mInFlight) {
+      mInFlight.remove(url);
+      if (bitmap == null)
+        mFailedAt.put(url, SystemClock.elapsedRealtime());
+    }
+    if (bitmap == null)
+      return;
+
+    mMemoryCache.put(url, bitmap);
+    mMainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        listener.onArtwork(url, bitmap);
+      }
+    });
+  }
+
+  private Bitmap fetch(String url) {
+    File file = new File(mDiskDir, DiskCache.key(url));
+
+    if (file.exists()) {
+      Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+      if (bitmap != null) {
+        file.setLastModified(System.currentTimeMillis());
+        return bitmap;
+      }
+      file.delete();
+    }
+
+    try {
+      byte[] data = download(url);
+      Bitmap bitmap = decodeSampled(data);
+      if (bitmap == null)
+        return null;
+
+      writeToDisk(file, bitmap);
+      return bitmap;
+    } catch (IOException e) {
+      Log.w(LOG_TAG, "Could not load artwork " + url + ": " + e.toString());
+      return null;
+    }
+  }
+
+  private byte[] download(String url) throws IOException {
+    URLConnection connection = new URL(url).openConnection();
+    connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+    connection.setReadTimeout(CONNECT_TIMEOUT_MS);
+
+    InputStream in = connection.getInputStream();
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[16 * 1024];
+      int read;
+      while ((read = in.read(buffer)) != -1)
+        out.write(buffer, 0, read);
+      return out.toByteArray();
+    } finally {
+      in.close();
+    }
+  }
+
+  private Bitmap decodeSampled(byte[] data) {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    if (options.outWidth <= 0 || options.outHeight <= 0)
+      return null;
+
+    int sampleSize = 1;
+    while (options.outWidth / (sampleSize * 2) >= mTargetSize
+        && options.outHeight / (sampleSize * 2) >= mTargetSize)
+      sampleSize *= 2;
+
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = sampleSize;
+    return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+  }
+
+  private void writeToDisk(File file, Bitmap bitmap) {
+    if (!mDiskDir.exists() && !mDiskDir.mkdirs())
+      return;
+
+    FileOutputStream out = null;
+    try {
+      out = new FileOutputStream(file);
+      bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+    } catch (IOException e) {
+      file.delete();
+      return;
+    } finally {
+      if (out != null) {
+        try { out.close(); } catch (IOException e) {}
+      }
+    }
+    DiskCache.trim(mDiskDir, DISK_CACHE_BYTES, null);
+  }
+}
@@ -0,0 +1,161 @@
+package com.reactnativesoundmanagement;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.annotation.TargetApi;
+import android.media.MediaPlayer;
+import android.media.VolumeShaper;
+
+/**
+ * One running crossfade from an outgoing to an incoming player. On API 26+
+ * both ramps are VolumeShapers, applied by the mixer per sample; below that
+ * the gains are stepped from the player thread handler every RAMP_STEP_MS.
+ * Either way the outgoing player is released when the fade ends.
+ */
+class Crossfade implements Runnable {
+  interface Listener {
+    void onCrossfadeEnd(Crossfade crossfade);
+  }
+
+  private static final long RAMP_STEP_MS = 20;
+  private static final int CURVE_POINTS = 32;
+
+  final MediaPlayer outgoing;
+  final MediaPlayer incoming;
+  private final long mDuration;
+  private final FadeCurve mCurve;
+  private float mVolume;
+  private final Handler mHandler;
+  private final Listener mListener;
+  private long mStart;
+  private boolean mDone = false;
+  private Object mOutShaper;
+  private Object mInShaper;
+
+  /**
+   * @param volume player volume the ramps scale
+   */
+  Crossfade(MediaPlayer outgoing, MediaPlayer incoming, long duration, FadeCurve curve, float volume,
+      Handler handler, Listener listener) {
+    this.outgoing = outgoing;
+    this.incoming = incoming;
+    mDuration = Math.max(1, duration);
+    mCurve = curve;
+    mVolume = volume;
+    mHandler = handler;
+    mListener = listener;
+  }
+
+  /**
+   * Starts the incoming player silent and both ramps.
+   */
+  void start() {
+    mStart = SystemClock.uptimeMillis();
+    outgoing.setVolume(mVolume, mVolume);
+    incoming.setVolume(mVolume, mVolume);
+
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      startShapers();
+    } else {
+      incoming.setVolume(0, 0);
+      mHandler.post(this);
+    }
+    incoming.start();
+    // The end is timed here on both paths; shapers only do the ramps
+    mHandler.postAtTime(mEnd, mStart + mDuration);
+  }
+
+  @TargetApi(Build.VERSION_CODES.O)
+  private void startShapers() {
+    float[] times = FadeCurve.times(CURVE_POINTS);
+    VolumeShaper out = outgoing.createVolumeShaper(shape(times, mCurve.gains(times, false)));
+    VolumeShaper in = incoming.createVolumeShaper(shape(times, mCurve.gains(times, true)));
+    out.apply(VolumeShaper.Operation.PLAY);
+    in.apply(VolumeShaper.Operation.PLAY);
+    mOutShaper = out;
+    mInShaper = in;
+  }
+
+  @TargetApi(Build.VERSION_CODES.O)
+  private VolumeShaper.Configuration shape(float[] times, float[] gains) {
+    return new VolumeShaper.Configuration.Builder()
+        .setDuration(mDuration)
+        .setCurve(times, gains)
+        .setInterpolatorType(VolumeShaper.Configuration.INTERPOLATOR_TYPE_LINEAR)
+        .build();
+  }
+
+  @Override
+  public void run() {
+    if (mDone)
+      return;
+
+    double t = Math.min(1.0, (SystemClock.uptimeMillis() - mStart) / (double) mDuration);
+    float out = (float) (mCurve.fadeOut(t) * mVolume);
+    float in = (float) (mCurve.fadeIn(t) * mVolume);
+    try {
+      outgoing.setVolume(out, out);
+      incoming.setVolume(in, in);
+    } catch (IllegalStateException e) {
+      return;
+    }
+    if (t < 1.0)
+      mHandler.postDelayed(this, RAMP_STEP_MS);
+  }
+
+  private final Runnable mEnd = new Runnable() {
+    @Override
+    public void run() {
+      finish();
+    }
+  };
+
+  /**
+   * Player volume changed mid-fade: the ramps scale the new volume from now
+   * on and the incoming player ends at it.
+   */
+  void setVolume(float volume) {
+    mVolume = volume;
+    if (mDone || Build.VERSION.SDK_INT < Build.VERSION_CODES.O)
+      return; // the next ramp step picks it up
+
+    // Shapers multiply the player volume, so it is set directly
+    try {
+      outgoing.setVolume(volume, volume);
+      incoming.setVolume(volume, volume);
+    } catch (IllegalStateException e) {}
+  }
+
+  boolean isDone() {
+    return mDone;
+  }
+
+  /**
+   * Ends the fade now: the incoming player jumps to full volume and the
+   * outgoing one is released.
+   */
+  void finish() {
+    if (mDone)
+      return;
+    mDone = true;
+    mHandler.removeCallbacks(this);
+    mHandler.removeCallbacks(mEnd);
+
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O)
+      closeShapers();
+    try {
+      incoming.setVolume(mVolume, mVolume);
+    } catch (IllegalStateException e) {}
+    outgoing.release();
+    mListener.onCrossfadeEnd(this);
+  }
+
+  @TargetApi(Build.VERSION_CODES.O)
+  private void closeShapers() {
+    if (mInShaper != null)
+      ((VolumeShaper) mInShaper).close();
+    if (mOutShaper != null)
+      ((VolumeShaper) mOutShaper).close();
+  }
+}
@@ -0,0 +1,98 @@
+package com.reactnativesoundmanagement;
+
+import android.os.Build;
+import android.os.Trace;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Map.Entry;
+
+/**
+ * Latency histograms per operation and plain event counters for one module,
+ * exposed to JS through getMetrics(). Synchronous sections are also marked
+ * with android.os.Trace so they show up in systrace.
+ */
+class Metrics {
+  private final String mTracePrefix;
+  private final Map<String, LatencyHistogram> mLatencies = new HashMap<>();
+  private final Map<String, Long> mCounters = new HashMap<>();
+
+  Metrics(String tracePrefix) {
+    mTracePrefix = tracePrefix;
+  }
+
+  static long now() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Records the time since start (from {@link #now()}) under operation.
+   */
+  void record(String operation, long start) {
+    record(operation, start, System.nanoTime());
+  }
+
+  /**
+   * Records end - start, both from {@link #now()}, under operation.
+   */
+  void record(String operation, long start, long end) {
+    histogram(operation).record((end - start) / 1000);
+  }
+
+  synchronized void increment(String counter) {
+    Long value = mCounters.get(counter);
+    mCounters.put(counter, value == null ? 1 : value + 1);
+  }
+
+  void beginSection(String name) {
+    if (Build.VERSION.SDK_INT >= 18)
+      Trace.beginSection(mTracePrefix + name);
+  }
+
+  void endSection() {
+    if (Build.VERSION.SDK_INT >= 18)
+      Trace.endSection();
+  }
+
+  private synchronized LatencyHistogram histogram(String operation) {
+    LatencyHistogram histogram = mLatencies.get(operation);
+    if (histogram == null) {
+      histogram = new LatencyHistogram();
+      mLatencies.put(operation, histogram);
+    }
+    return histogram;
+  }
+
+  synchronized void reset() {
+    for (LatencyHistogram histogram : mLatencies.values())
+      histogram.reset();
+    mCounters.clear();
+  }
+
+  synchronized WritableMap toWritableMap() {
+    WritableMap latencies = Arguments.createMap();
+    for (Entry<String, LatencyHistogram> entry : mLatencies.entrySet()) {
+      LatencyHistogram histogram = entry.getValue();
+      WritableMap stats = Arguments.createMap();
+      stats.putDouble("count", histogram.count());
+      stats.putDouble("mean", histogram.meanMillis());
+      stats.putDouble("p50", histogram.percentileMillis(0.50));
+      stats.putDouble("p90", histogram.percentileMillis(0.90));
+      stats.putDouble("p99", histogram.percentileMillis(0.99));
+      stats.putDouble("max", histogram.maxMillis());
+      latencies.putMap(entry.getKey(), stats);
+    }
+
+    WritableMap counters = Arguments.createMap();
+    for (Entry<String, Long> entry : mCounters.entrySet())
+      counters.putDouble(entry.getKey(), entry.getValue());
+
+    WritableMap data = Arguments.createMap();
+    data.putMap("latency", latencies);
+    data.putMap("counters", counters);
+    return data;
+  }
+}
@@ -0,0 +1,108 @@
+package com.reactnativesoundmanagement;
+
+import android.net.Uri;
+import android.os.Environment;
+import android.content.Context;
+import android.content.ContextWrapper;
+
+import java.io.File;
+import java.util.Map;
+import java.util.LinkedHashMap;
+
+/**
+ * Resolves the paths handed in from JS to raw resources, app files, sdcard
+ * files or plain URIs, in that order. Results are kept in a small LRU so that
+ * replaying a path skips the resource table and filesystem probes. A local
+ * path that matched nothing is not kept: the file may appear later.
+ */
+class PathResolver {
+  private static final int MAX_CACHED_PATHS = 256;
+
+  private final Context context;
+  private final Map<String, Uri> mCache = new LinkedHashMap<String, Uri>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Uri> eldest) {
+      return size() > MAX_CACHED_PATHS;
+    }
+  };
+
+  PathResolver(Context context) {
+    this.context = context;
+  }
+
+  /**
+   * Id of the "raw" resource named like the path (extension stripped), or 0.
+   */
+  int resourceId(String path) {
+    return this.context.getResources().getIdentifier(PathRules.resourceName(path),
+        "raw", this.context.getPackageName());
+  }
+
+  /**
+   * Existing local file for the path, or null.
+   */
+  File file(String path) {
+    String[] candidates = PathRules.candidates(new ContextWrapper(this.context).getFilesDir().toString(),
+        Environment.getExternalStorageDirectory().toString(), path);
+    for (String candidate : candidates) {
+      File file = new File(candidate);
+      if (file.exists())
+        return file;
+    }
+    return null;
+  }
+
+  Uri resolve(String path) {
+    synchronized (mCache) {
+      Uri uri = mCache.get(path);
+      if (uri != null)
+        return uri;
+    }
+
+    Uri uri = probe(path);
+    if (uri == null) {
+      // Otherwise pass whole path string as URI and hope for the best
+      uri = Uri.parse(path);
+      String scheme = uri.getScheme();
+      if (scheme == null || scheme.equals("file"))
+        return uri;
+    }
+
+    synchronized (mCache) {
+      mCache.put(path, uri);
+    }
+    return uri;
+  }
+
+  /**
+   * Forget a cached resolution, e.g. after the file it pointed to went away.
+   */
+  void invalidate(String path) {
+    synchronized (mCache) {
+      mCache.remove(path);
+    }
+  }
+
+  void clear() {
+    synchronized (mCache) {
+      mCache.clear();
+    }
+  }
+
+  /**
+   * Resource or existing file for the path, or null.
+   */
+  private Uri probe(String path) {
+    // Try finding file in Android "raw" resources
+    int resId = resourceId(path);
+    if (resId != 0) {
+        return Uri.parse("android.resource://" + this.context.getPackageName() + "/" + resId);
+    }
+
+    File file = file(path);
+    if (file != null) {
+        return Uri.fromFile(file);
+    }
+    return null;
+  }
+}
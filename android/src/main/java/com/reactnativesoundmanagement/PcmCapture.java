@@ -0,0 +1,172 @@
+package com.reactnativesoundmanagement;
+
+import android.os.Process;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Reads 16 bit PCM from the microphone on a dedicated audio-priority thread
+ * into a {@link PcmRingBuffer}. Listeners run inline on that thread before a
+ * slot is published and must not block or allocate; anything heavier reads
+ * from the ring through its own cursor.
+ */
+class PcmCapture implements Runnable {
+  static final int SLOT_MILLIS = 20;
+
+  interface ErrorListener {
+    /**
+     * AudioRecord.read failed with code and the capture stopped itself.
+     * Called on the capture thread as it exits.
+     */
+    void onCaptureError(PcmCapture capture, int code);
+  }
+
+  final int sampleRate;
+  final int channels;
+  private final PcmRingBuffer mRing;
+  private final AudioRecord mAudioRecord;
+  private PcmListener[] mListeners = new PcmListener[0];
+  private volatile boolean mRunning = false;
+  private Thread mThread;
+  private volatile ErrorListener mErrorListener;
+
+  /**
+   * @param bufferMillis how much audio the ring holds
+   */
+  PcmCapture(int sampleRate, int channels, int bufferMillis) {
+    this.sampleRate = sampleRate;
+    this.channels = channels;
+
+    int channelConfig = channels == 1 ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO;
+    int minBuffer = AudioRecord.getMinBufferSize(sampleRate, channelConfig, AudioFormat.ENCODING_PCM_16BIT);
+    if (minBuffer <= 0)
+      throw new IllegalArgumentException("Unsupported capture format " + sampleRate + "Hz/" + channels + "ch");
+
+    int frameBytes = 2 * channels;
+    int slotBytes = sampleRate * SLOT_MILLIS / 1000 * frameBytes;
+    int slots = Math.max(4, bufferMillis / SLOT_MILLIS);
+    mRing = new PcmRingBuffer(slots, slotBytes);
+
+    mAudioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, sampleRate, channelConfig,
+        AudioFormat.ENCODING_PCM_16BIT, Math.max(minBuffer, slotBytes * 4));
+    if (mAudioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+      mAudioRecord.release();
+      throw new IllegalStateException("AudioRecord could not be initialized");
+    }
+  }
+
+  PcmRingBuffer ring() {
+    return mRing;
+  }
+
+  /**
+   * Bytes per second of the captured stream.
+   */
+  int byteRate() {
+    return sampleRate * channels * 2;
+  }
+
+  synchronized void addListener(PcmListener listener) {
+    PcmListener[] listeners = new PcmListener[mListeners.length + 1];
+    System.arraycopy(mListeners, 0, listeners, 0, mListeners.length);
+    listeners[mListeners.length] = listener;
+    mListeners = listeners;
+  }
+
+  synchronized void removeListener(PcmListener listener) {
+    int index = -1;
+    for (int i = 0; i < mListeners.length; i++) {
+      if (mListeners[i] == listener)
+        index = i;
+    }
+    if (index < 0)
+      return;
+
+    PcmListener[] listeners = new PcmListener[mListeners.length - 1];
+    System.arraycopy(mListeners, 0, listeners, 0, index);
+    System.arraycopy(mListeners, index + 1, listeners, index, listeners.length - index);
+    mListeners = listeners;
+  }
+
+  void setErrorListener(ErrorListener listener) {
+    mErrorListener = listener;
+  }
+
+  boolean isRunning() {
+    return mRunning;
+  }
+
+  /**
+   * @throws IllegalStateException if the microphone could not be started,
+   *     e.g. another client holds it
+   */
+  synchronized void start() {
+    if (mRunning)
+      return;
+
+    mAudioRecord.startRecording();
+    if (mAudioRecord.getRecordingState() != AudioRecord.RECORDSTATE_RECORDING)
+      throw new IllegalStateException("AudioRecord did not start recording");
+    mRunning = true;
+    mThread = new Thread(this, "SoundManagementCapture");
+    mThread.start();
+  }
+
+  void stop() {
+    Thread thread;
+    synchronized (this) {
+      if (!mRunning)
+        return;
+      mRunning = false;
+      thread = mThread;
+      mThread = null;
+    }
+
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    mAudioRecord.stop();
+  }
+
+  void release() {
+    stop();
+    mAudioRecord.release();
+  }
+
+  @Override
+  public void run() {
+    Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+    int slotBytes = mRing.slotBytes();
+
+    while (mRunning) {
+      ByteBuffer slot = mRing.writeSlot();
+      int read = mAudioRecord.read(slot, slotBytes);
+      if (read == 0)
+        continue;
+      if (read < 0) {
+        // Permission revoked, mic taken over or the audio server died: read
+        // keeps failing, stop instead of spinning at audio priority
+        mRunning = false;
+        ErrorListener listener = mErrorListener;
+        if (listener != null)
+          listener.onCaptureError(this, read);
+        return;
+      }
+
+      PcmListener[] listeners = mListeners;
+      if (listeners.length > 0) {
+        ShortBuffer samples = mRing.writeSamples();
+        long seq = mRing.writeSequence();
+        for (PcmListener listener : listeners)
+          listener.onPcm(samples, read / 2, seq);
+      }
+      mRing.publish(read);
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.reactnativesoundmanagement;
+
+import java.io.IOException;
+
+/**
+ * An output of the PCM capture: reads the ring through its own cursor on its
+ * own thread, so a slow sink only drops its own slots and never stalls the
+ * capture or the other sinks.
+ */
+interface PcmSink {
+  /**
+   * Starts reading from the newest slot, or up to backSlots older ones the
+   * ring still holds (pre-roll of an armed capture).
+   */
+  void start(int backSlots);
+
+  /**
+   * Drains what the capture already published and closes the output. Stop
+   * the capture first to get everything up to that point.
+   */
+  void finish() throws IOException;
+
+  /**
+   * Slots this sink lost to the capture lapping it.
+   */
+  long dropped();
+
+  /**
+   * Most slots this sink has been behind the capture.
+   */
+  long maxLag();
+}
@@ -19,7 +19,7 @@ public class PhoneListener extends PhoneStateListener {
   public void onCallStateChanged(int state, String incomingNumber) {
     switch (state) {
       case TelephonyManager.CALL_STATE_RINGING:
-        if (this.player.mMediaPlayer.isPlaying()) {
+        if (this.player.isPlaying()) {
           try{
             this.player.pause();
           }catch(Exception e){}
@@ -0,0 +1,78 @@
+package com.reactnativesoundmanagement;
+
+import android.util.Log;
+import android.media.MediaPlayer;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * State of one player instance owned by SoundPlayerModule, keyed by the id the
+ * JS wrapper hands in with every call.
+ */
+class Player {
+  private static final String LOG_TAG = "Player";
+
+  final int id;
+  volatile PlaybackState state = PlaybackState.IDLE; // written on the player thread, read anywhere
+  MediaPlayer mediaPlayer;
+  MediaPlayer preparingPlayer; // prepareAsync in flight, not yet playable
+  Callback prepareCallback;
+  boolean looping = false;
+  String filepath;
+  WritableMap meta = Arguments.createMap();
+  Ticker.Listener progressListener;
+  boolean anchorMode = false; // report position anchors instead of progress ticks
+  float rate = 1.0f;
+  long prepareStart; // Metrics.now() timestamps of operations in flight
+  long seekStart;
+  long rebufferStart;
+  boolean seekInFlight; // seek coalescing, see SoundPlayerModule.requestSeek
+  boolean seekPrecise = true;
+  int pendingSeek = -1;
+  boolean pendingSeekPrecise;
+  boolean seekedDue; // a precise seek was superseded, the settled seek emits "seeked"
+  final List<Callback> seekCallbacks = new ArrayList<>();
+  PlayQueue queue; // gapless queue mode when set
+  MediaPlayer nextPlayer; // queue item after the current one, chained once prepared
+  int nextIndex = -1; // queue item index nextPlayer holds
+  boolean nextReady;
+  boolean startNextWhenReady;
+  float volume = 1f;
+  long crossfadeMs = 0; // 0 chains the next item gaplessly instead
+  FadeCurve crossfadeCurve = FadeCurve.EQUAL_POWER;
+  Crossfade crossfade; // running, the outgoing player plays out under it
+  Runnable crossfadeTrigger;
+
+  Player(int id) {
+    this.id = id;
+  }
+
+  /**
+   * Moves to next if the transition table allows it; staying in the same
+   * state is allowed, anything else is logged and ignored.
+   */
+  boolean moveTo(PlaybackState next) {
+    if (next == state)
+      return true;
+    if (!state.canMoveTo(next)) {
+      Log.w(LOG_TAG, "Player " + id + " can't go from " + state + " to " + next);
+      return false;
+    }
+    state = next;
+    return true;
+  }
+
+  boolean owns(MediaPlayer player) {
+    return player != null && (player == mediaPlayer || player == preparingPlayer || player == nextPlayer
+        || (crossfade != null && player == crossfade.outgoing));
+  }
+
+  boolean isPlaying() {
+    return mediaPlayer != null && mediaPlayer.isPlaying();
+  }
+}
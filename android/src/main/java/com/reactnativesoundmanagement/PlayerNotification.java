@@ -0,0 +1,205 @@
+package com.reactnativesoundmanagement;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.content.Context;
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.widget.RemoteViews;
+import android.app.NotificationManager;
+import android.support.v4.app.NotificationCompat;
+
+/**
+ * Media controls notification kept alive between updates. The builder and the
+ * PendingIntents are created once, only fields that changed are pushed into
+ * the RemoteViews, and bursts of updates are coalesced into one notify().
+ * A new artwork always starts a fresh RemoteViews: every bitmap set on one
+ * stays in its action list and travels with each notify().
+ */
+class PlayerNotification {
+  static final int NOTIFICATION_ID = 8746221;
+
+  private static final long MIN_UPDATE_INTERVAL_MS = 250;
+  // RemoteViews records every setter as an action, rebuild before it grows large
+  private static final int MAX_INCREMENTAL_UPDATES = 32;
+
+  private final Context context;
+  private final NotificationManager mNotificationManager;
+  private final Handler mHandler = new Handler(Looper.getMainLooper());
+  private NotificationCompat.Builder notifyBuilder;
+  private RemoteViews remoteViews; // main thread only
+  private PendingIntent mPreviousIntent, mPlayIntent, mNextIntent, mExitIntent;
+  private int mIncrementalUpdates = 0;
+  private long mLastPosted = 0;
+  private boolean mScheduled = false;
+  private boolean mShown = false;
+  private boolean mRebuild = false; // set by cancel(), the next flush() drops remoteViews
+
+  // Wanted state, written by any thread
+  private String mTitle, mSinger;
+  private boolean mPlaying;
+  private Bitmap mArtwork;
+
+  // State currently in remoteViews, main thread only
+  private String mShownTitle, mShownSinger;
+  private boolean mShownPlaying;
+  private Bitmap mShownArtwork;
+
+  private final Runnable mFlush = new Runnable() {
+    @Override
+    public void run() {
+      flush();
+    }
+  };
+
+  PlayerNotification(Context context) {
+    this.context = context;
+    this.mNotificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+  }
+
+  synchronized void update(String title, String singer, boolean playing, Bitmap artwork) {
+    mTitle = title;
+    mSinger = singer;
+    mPlaying = playing;
+    mArtwork = artwork;
+    mShown = true;
+
+    if (mScheduled)
+      return;
+
+    // First update after a quiet period goes out right away, bursts are coalesced
+    long delay = Math.max(0, mLastPosted + MIN_UPDATE_INTERVAL_MS - SystemClock.uptimeMillis());
+    mHandler.postDelayed(mFlush, delay);
+    mScheduled = true;
+  }
+
+  synchronized boolean isShown() {
+    return mShown;
+  }
+
+  synchronized void cancel() {
+    mHandler.removeCallbacks(mFlush);
+    mScheduled = false;
+    mShown = false;
+    mNotificationManager.cancel(NOTIFICATION_ID);
+    // Next update starts from a clean layout
+    mRebuild = true;
+  }
+
+  private void flush() {
+    String title, singer;
+    boolean playing;
+    Bitmap artwork;
+
+    synchronized (this) {
+      mScheduled = false;
+      if (mRebuild) {
+        remoteViews = null;
+        mRebuild = false;
+      }
+      if (!mShown)
+        return;
+      title = mTitle;
+      singer = mSinger;
+      playing = mPlaying;
+      artwork = mArtwork;
+    }
+
+    boolean rebuild = remoteViews == null || mIncrementalUpdates >= MAX_INCREMENTAL_UPDATES
+        || artwork != mShownArtwork;
+    if (rebuild) {
+      remoteViews = new RemoteViews(context.getPackageName(), R.layout.layout_notification_player);
+      remoteViews.setOnClickPendingIntent(R.id.btn_notification_previous, previousIntent());
+      remoteViews.setOnClickPendingIntent(R.id.btn_notification_play, playIntent());
+      remoteViews.setOnClickPendingIntent(R.id.btn_notification_next, nextIntent());
+      remoteViews.setOnClickPendingIntent(R.id.btn_notification_stop, exitIntent());
+      mIncrementalUpdates = 0;
+    } else if (equal(title, mShownTitle) && equal(singer, mShownSinger)
+        && playing == mShownPlaying && artwork == mShownArtwork) {
+      return;
+    }
+
+    if (rebuild || !equal(title, mShownTitle))
+      remoteViews.setTextViewText(R.id.remoteview_notification_headline, title != null ? title : "");
+
+    if (rebuild || !equal(singer, mShownSinger))
+      remoteViews.setTextViewText(R.id.remoteview_notification_short_message, singer != null ? singer : "");
+
+    if (rebuild) {
+      if (artwork != null)
+        remoteViews.setImageViewBitmap(R.id.remoteview_notification_icon, artwork);
+      else
+        remoteViews.setImageViewResource(R.id.remoteview_notification_icon, R.mipmap.ic_launcher);
+    }
+
+    if (rebuild || playing != mShownPlaying) {
+      remoteViews.setImageViewResource(R.id.btn_notification_play,
+          playing ? android.R.drawable.ic_media_pause : android.R.drawable.ic_media_play);
+    }
+
+    mShownTitle = title;
+    mShownSinger = singer;
+    mShownPlaying = playing;
+    mShownArtwork = artwork;
+    if (!rebuild)
+      mIncrementalUpdates++;
+
+    Notification notification = builder().setContent(remoteViews).build();
+
+    // set big content view for newer androids
+    if (android.os.Build.VERSION.SDK_INT >= 16) {
+      notification.bigContentView = remoteViews;
+    }
+
+    mNotificationManager.notify(NOTIFICATION_ID, notification);
+    mLastPosted = SystemClock.uptimeMillis();
+  }
+
+  private NotificationCompat.Builder builder() {
+    if (notifyBuilder == null) {
+      notifyBuilder =
+        new NotificationCompat.Builder(context)
+            .setSmallIcon(android.R.drawable.ic_lock_silent_mode_off)
+            .setContentTitle("Content Title")
+            .setContentText("Content Text")
+            .setPriority( NotificationCompat.PRIORITY_MIN);
+    }
+    return notifyBuilder;
+  }
+
+  private PendingIntent previousIntent() {
+    if (mPreviousIntent == null)
+      mPreviousIntent = makePendingIntent(SoundPlayerModule.BROADCAST_PLAYBACK_PREVIOUS);
+    return mPreviousIntent;
+  }
+
+  private PendingIntent playIntent() {
+    if (mPlayIntent == null)
+      mPlayIntent = makePendingIntent(SoundPlayerModule.BROADCAST_PLAYBACK_PLAY);
+    return mPlayIntent;
+  }
+
+  private PendingIntent nextIntent() {
+    if (mNextIntent == null)
+      mNextIntent = makePendingIntent(SoundPlayerModule.BROADCAST_PLAYBACK_NEXT);
+    return mNextIntent;
+  }
+
+  private PendingIntent exitIntent() {
+    if (mExitIntent == null)
+      mExitIntent = makePendingIntent(SoundPlayerModule.BROADCAST_PLAYBACK_EXIT);
+    return mExitIntent;
+  }
+
+  private PendingIntent makePendingIntent(String broadcast) {
+    Intent intent = new Intent(broadcast);
+    return PendingIntent.getBroadcast(this.context, 0, intent, 0);
+  }
+
+  private static boolean equal(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+}
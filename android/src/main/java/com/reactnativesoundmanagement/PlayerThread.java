@@ -0,0 +1,105 @@
+package com.reactnativesoundmanagement;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import java.util.Map;
+import java.util.HashMap;
+
+/**
+ * The one thread that touches MediaPlayer. Every player command from the
+ * bridge, the notification and the phone listener is queued here, and players
+ * are created on this looper so their listener callbacks land here too.
+ *
+ * Commands posted with a key replace a still-queued command with the same key,
+ * so e.g. a burst of volume changes only applies the last one.
+ */
+class PlayerThread {
+  /**
+   * A command that can tell its caller it was dropped.
+   */
+  abstract static class Command implements Runnable {
+    /**
+     * Called instead of run(), on the posting thread, when a newer command with
+     * the same key replaced this one before it started.
+     */
+    void superseded() {}
+  }
+
+  private final HandlerThread mThread;
+  private final Handler mHandler;
+  private final Map<Object, Pending> mPending = new HashMap<>();
+
+  private final class Pending implements Runnable {
+    final Object key;
+    final Runnable command;
+
+    Pending(Object key, Runnable command) {
+      this.key = key;
+      this.command = command;
+    }
+
+    @Override
+    public void run() {
+      synchronized (mPending) {
+        if (mPending.get(key) == this)
+          mPending.remove(key);
+      }
+      command.run();
+    }
+  }
+
+  PlayerThread() {
+    mThread = new HandlerThread("SoundManagementPlayer", Process.THREAD_PRIORITY_AUDIO);
+    mThread.start();
+    mHandler = new Handler(mThread.getLooper());
+  }
+
+  Handler getHandler() {
+    return mHandler;
+  }
+
+  void post(Runnable command) {
+    mHandler.post(command);
+  }
+
+  /**
+   * Queues command, dropping a queued command posted with an equal key.
+   */
+  void post(Object key, Runnable command) {
+    Pending pending = new Pending(key, command);
+    Pending replaced;
+
+    synchronized (mPending) {
+      replaced = mPending.put(key, pending);
+      if (replaced != null)
+        mHandler.removeCallbacks(replaced);
+      mHandler.post(pending);
+    }
+
+    if (replaced != null && replaced.command instanceof Command)
+      ((Command) replaced.command).superseded();
+  }
+
+  /**
+   * Runs what is already queued, then stops the thread.
+   */
+  void quit(final Runnable last) {
+    mHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (last != null)
+          last.run();
+        mThread.quit();
+      }
+    });
+  }
+
+  /**
+   * Key for a coalescable command of one player, e.g. key(id, "volume").
+   */
+  static String key(int playerId, String kind) {
+    return playerId + ":" + kind;
+  }
+}
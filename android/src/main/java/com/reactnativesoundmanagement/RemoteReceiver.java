@@ -25,7 +25,7 @@ class RemoteReceiver extends BroadcastReceiver {
     try {
       switch(action){
         case SoundPlayerModule.BROADCAST_PLAYBACK_PLAY:
-          if(this.player.mMediaPlayer.isPlaying())
+          if(this.player.isPlaying())
             this.player.pause();
           else
             this.player.play();
@@ -35,10 +35,10 @@ class RemoteReceiver extends BroadcastReceiver {
           this.player.exitNotification();
           break;
         case SoundPlayerModule.BROADCAST_PLAYBACK_NEXT:
-          this.player.emitEvent("next", null);
+          this.player.skipNext();
           break;
         case SoundPlayerModule.BROADCAST_PLAYBACK_PREVIOUS:
-          this.player.emitEvent("previous", null);
+          this.player.skipPrevious();
           break;
       }
     } catch (Exception e) {
@@ -0,0 +1,231 @@
+package com.reactnativesoundmanagement;
+
+import android.os.Build;
+import android.util.Log;
+import android.media.SoundPool;
+import android.media.AudioManager;
+import android.media.AudioAttributes;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+
+import java.io.File;
+import java.util.Map;
+import java.util.HashMap;
+
+/**
+ * Short clips (UI sounds, effects) decoded once into a SoundPool so that
+ * play() only has to start a stream instead of building a MediaPlayer.
+ */
+public class SoundEffectModule extends ReactContextBaseJavaModule implements SoundPool.OnLoadCompleteListener {
+  private static final String LOG_TAG = "SoundEffectModule";
+  private static final int DEFAULT_MAX_STREAMS = 8;
+  // Ids handed to JS carry the pool generation above the whole 32-bit
+  // SoundPool id, a recreated pool restarts its ids at 1 and must not match
+  // old handles. They travel as doubles, exact up to 2^53.
+  private static final int ID_BITS = 32;
+  private static final long ID_MASK = 0xFFFFFFFFL;
+
+  private ReactApplicationContext context;
+  private final PathResolver mPathResolver;
+  private SoundPool mSoundPool;
+  private int mMaxStreams = DEFAULT_MAX_STREAMS;
+  private int mGeneration = 1;
+  private final Map<Integer, Callback> mLoadCallbacks = new HashMap<>();
+
+  public SoundEffectModule(ReactApplicationContext reactContext) {
+    super(reactContext);
+    this.context = reactContext;
+    this.mPathResolver = new PathResolver(reactContext);
+  }
+
+  @Override
+  public String getName() {
+    return "RCTSoundEffectModule";
+  }
+
+  private WritableMap errObj(final String code, final String message) {
+    WritableMap err = Arguments.createMap();
+    err.putString("err", code);
+    err.putString("message", message);
+    Log.e(LOG_TAG, message);
+    return err;
+  }
+
+  private double handle(int id) {
+    return ((long) mGeneration << ID_BITS) | (id & ID_MASK);
+  }
+
+  /**
+   * SoundPool id of a handle from the current pool, or 0 if it is stale.
+   */
+  private int poolId(Double handle) {
+    if (mSoundPool == null || handle == null)
+      return 0;
+    long value = handle.longValue();
+    if (value >>> ID_BITS != mGeneration)
+      return 0;
+    return (int) (value & ID_MASK);
+  }
+
+  @SuppressWarnings("deprecation")
+  private SoundPool getSoundPool() {
+    if (mSoundPool != null)
+      return mSoundPool;
+
+    if (Build.VERSION.SDK_INT >= 21) {
+      AudioAttributes attributes = new AudioAttributes.Builder()
+          .setUsage(AudioAttributes.USAGE_ASSISTANCE_SONIFICATION)
+          .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+          .build();
+      mSoundPool = new SoundPool.Builder()
+          .setMaxStreams(mMaxStreams)
+          .setAudioAttributes(attributes)
+          .build();
+    } else {
+      mSoundPool = new SoundPool(mMaxStreams, AudioManager.STREAM_MUSIC, 0);
+    }
+    mSoundPool.setOnLoadCompleteListener(this);
+    return mSoundPool;
+  }
+
+  /**
+   * Caps the number of clips playing at once. SoundPool fixes this at
+   * construction, so changing it drops every loaded clip.
+   */
+  @ReactMethod
+  public void setMaxStreams(Integer maxStreams, Callback callback) {
+    if (maxStreams == null || maxStreams < 1) {
+      callback.invoke(errObj("invalidarg", "maxStreams must be at least 1"));
+      return;
+    }
+
+    if (maxStreams != mMaxStreams) {
+      release(null);
+      mMaxStreams = maxStreams;
+    }
+    callback.invoke();
+  }
+
+  @ReactMethod
+  public void load(String path, Callback callback) {
+    if (path == null || path.isEmpty()) {
+      callback.invoke(errObj("nopath", "Provided path was empty"));
+      return;
+    }
+
+    SoundPool soundPool = getSoundPool();
+    int soundId;
+
+    int resId = mPathResolver.resourceId(path);
+    if (resId != 0) {
+      soundId = soundPool.load(this.context, resId, 1);
+    } else {
+      File file = mPathResolver.file(path);
+      if (file == null) {
+        callback.invoke(errObj("invalidpath", "Sound effects must be raw resources or local files: " + path));
+        return;
+      }
+      soundId = soundPool.load(file.getAbsolutePath(), 1);
+    }
+
+    if (soundId == 0) {
+      callback.invoke(errObj("loadfail", "SoundPool could not load " + path));
+      return;
+    }
+    mLoadCallbacks.put(soundId, callback);
+  }
+
+  @Override
+  public void onLoadComplete(SoundPool soundPool, int soundId, int status) {
+    Callback callback = mLoadCallbacks.remove(soundId);
+    if (callback == null)
+      return;
+
+    if (status != 0) {
+      callback.invoke(errObj("loadfail", "SoundPool load failed with status " + status));
+      return;
+    }
+
+    WritableMap data = new WritableNativeMap();
+    data.putDouble("soundId", handle(soundId));
+    callback.invoke(null, data);
+  }
+
+  @ReactMethod
+  public void unload(Double soundId, Callback callback) {
+    int id = poolId(soundId);
+    if (id != 0)
+      mSoundPool.unload(id);
+
+    if (callback != null)
+      callback.invoke();
+  }
+
+  @ReactMethod
+  public void play(Double soundId, ReadableMap options, Callback callback) {
+    int id = poolId(soundId);
+    if (id == 0) {
+      callback.invoke(errObj("notloaded", "Sound is not loaded in the current pool, load() it again."));
+      return;
+    }
+
+    float volume = 1.0f;
+    float rate = 1.0f;
+    int loop = 0;
+    int priority = 1;
+
+    if (options.hasKey("volume") && !options.isNull("volume"))
+      volume = (float) options.getDouble("volume");
+    if (options.hasKey("rate") && !options.isNull("rate"))
+      rate = (float) options.getDouble("rate");
+    if (options.hasKey("loop") && !options.isNull("loop"))
+      loop = options.getInt("loop");
+    if (options.hasKey("priority") && !options.isNull("priority"))
+      priority = options.getInt("priority");
+
+    int streamId = mSoundPool.play(id, volume, volume, priority, loop, rate);
+    if (streamId == 0) {
+      callback.invoke(errObj("playback", "SoundPool could not play sound " + id));
+      return;
+    }
+
+    WritableMap data = new WritableNativeMap();
+    data.putDouble("streamId", handle(streamId));
+    callback.invoke(null, data);
+  }
+
+  @ReactMethod
+  public void stop(Double streamId) {
+    int id = poolId(streamId);
+    if (id != 0)
+      mSoundPool.stop(id);
+  }
+
+  @ReactMethod
+  public void release(Callback callback) {
+    if (mSoundPool != null) {
+      mSoundPool.release();
+      mSoundPool = null;
+      mGeneration++;
+    }
+
+    for (Callback pending : mLoadCallbacks.values())
+      pending.invoke(errObj("cancelled", "SoundPool was released"));
+    mLoadCallbacks.clear();
+
+    if (callback != null)
+      callback.invoke();
+  }
+
+  @Override
+  public void onCatalystInstanceDestroy() {
+    release(null);
+  }
+}
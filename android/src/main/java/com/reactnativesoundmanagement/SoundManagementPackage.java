@@ -16,6 +16,7 @@ public class SoundManagementPackage implements ReactPackage {
     List<NativeModule> modules = new ArrayList<>();
     modules.add(new SoundPlayerModule(reactContext));
     modules.add(new SoundRecorderModule(reactContext));
+    modules.add(new SoundEffectModule(reactContext));
     return modules;
   }
 
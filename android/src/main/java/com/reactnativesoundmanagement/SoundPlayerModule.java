@@ -4,31 +4,36 @@ import java.net.*;
 import android.net.Uri;
 import android.util.Log;
 import android.content.Intent;
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
 import android.os.Environment;
 import android.graphics.Bitmap;
 import android.content.Context;
 import android.os.PowerManager;
-import android.app.Notification;
+import android.os.Build;
+import android.os.Handler;
+import android.os.SystemClock;
 import android.media.MediaPlayer;
-import android.app.PendingIntent;
-import android.widget.RemoteViews;
 import android.content.IntentFilter;
 import android.media.PlaybackParams;
+import android.media.MediaTimestamp;
 import android.media.AudioAttributes;
 import android.graphics.BitmapFactory;
 import android.content.ContextWrapper;
-import android.app.NotificationManager;
 import android.support.annotation.Nullable;
 import android.media.AudioAttributes.Builder;
-import android.support.v4.app.NotificationCompat;
 import android.telephony.PhoneStateListener;
 import android.telephony.TelephonyManager;
 
 import com.facebook.react.bridge.Callback;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableType;
 import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.WritableNativeMap;
 import com.facebook.react.bridge.ReactApplicationContext;
@@ -37,42 +42,86 @@ import com.facebook.react.modules.core.DeviceEventManagerModule;
 
 import java.io.File;
 import java.util.Map;
-import java.util.Timer;
+import java.util.List;
+import java.util.ArrayList;
 import java.lang.Thread;
 import java.util.HashMap;
 import java.util.Objects;
 import java.util.Map.Entry;
 import java.io.IOException;
-import java.util.TimerTask;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
 
 public class SoundPlayerModule extends ReactContextBaseJavaModule implements MediaPlayer.OnInfoListener, MediaPlayer.OnCompletionListener, MediaPlayer.OnSeekCompleteListener,
-      MediaPlayer.OnBufferingUpdateListener {
+      MediaPlayer.OnBufferingUpdateListener, MediaPlayer.OnPreparedListener, MediaPlayer.OnErrorListener, LifecycleEventListener {
 
-  private static final int NOTIFICATION_ID = 8746221;
   private static final String LOG_TAG = "SoundPlayerModule";    
+  private static final long DEFAULT_STREAM_CACHE_BYTES = 100 * 1024 * 1024;
+  // Position probes after start(), the delay doubling up to ~1.3s in all
+  private static final int FIRST_AUDIO_PROBE_MS = 10;
+  private static final int FIRST_AUDIO_PROBES = 8;
   public static final String BROADCAST_PLAYBACK_STOP = "stop",
             BROADCAST_PLAYBACK_NEXT = "next",
             BROADCAST_PLAYBACK_EXIT = "exit",
             BROADCAST_PLAYBACK_PLAY = "playback",
             BROADCAST_PLAYBACK_PREVIOUS = "previous";
-  public  static MediaPlayer mMediaPlayer; //Set only play in app
-  public static RemoteViews remoteViews;
-  private NotificationCompat.Builder notifyBuilder;
-  private NotificationManager mNotificationManager = null;
-  private static TimerTask mTimerTask;
-  private static Timer timer; 
-  private Integer doPlayerId;
-  private static boolean looping = false;
-  private static String filepath;
+  private final PlayerThread mPlayerThread = new PlayerThread();
+  private final WarmPool mWarmPool = new WarmPool(); // player thread only
+  private final ComponentCallbacks2 mMemoryCallbacks = new ComponentCallbacks2() {
+    @Override
+    public void onTrimMemory(int level) {
+      // Going to the background alone is no reason to drop the hinted tracks
+      if (level != TRIM_MEMORY_UI_HIDDEN)
+        clearWarmPool(null);
+    }
+
+    @Override
+    public void onLowMemory() {
+      clearWarmPool(null);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+  };
+  private final Map<Integer, Player> mPlayers = new HashMap<>(); // player thread only
+  private volatile Player mNotificationPlayer; // player driven by the notification and phone state
+  private final PlayerNotification mNotification;
   private ReactApplicationContext context;
   private final RemoteReceiver receiver = new RemoteReceiver(this);
   private PhoneListener phoneStateListener;
   private TelephonyManager phoneManager;
-  private static WritableMap mMediaMeta = Arguments.createMap();
+  private final PathResolver mPathResolver;
+  private CacheProxy mCacheProxy;
+  private final Metrics mMetrics = new Metrics("SoundPlayer.");
+  private final WaveformExtractor mWaveformExtractor;
+  private final ExecutorService mWorker = Executors.newSingleThreadExecutor();
+  private final ArtworkLoader mArtworkLoader;
+  private final ArtworkLoader.Listener mArtworkListener = new ArtworkLoader.Listener() {
+    @Override
+    public void onArtwork(String url, Bitmap bitmap) {
+      // Only redraw if the notification still shows the track this art is for
+      final String loaded = url;
+      mPlayerThread.post(new Runnable() {
+        @Override
+        public void run() {
+          Player player = mNotificationPlayer;
+          if (player != null && mNotification.isShown() && player.meta.hasKey("image_url")
+              && loaded.equals(player.meta.getString("image_url")))
+            showNotification();
+        }
+      });
+    }
+  };
 
   public SoundPlayerModule(ReactApplicationContext reactContext) {
     super(reactContext);
     this.context = reactContext;
+    this.mPathResolver = new PathResolver(reactContext);
+    this.mNotification = new PlayerNotification(reactContext);
+    this.mWaveformExtractor = new WaveformExtractor(reactContext);
+    this.mArtworkLoader = new ArtworkLoader(reactContext,
+        reactContext.getResources().getDimensionPixelSize(android.R.dimen.notification_large_icon_width));
     IntentFilter intentFilter = new IntentFilter();
     intentFilter.addAction(BROADCAST_PLAYBACK_PREVIOUS);
     intentFilter.addAction(BROADCAST_PLAYBACK_NEXT);
@@ -80,6 +129,8 @@ public class SoundPlayerModule extends ReactContextBaseJavaModule implements Med
     intentFilter.addAction(BROADCAST_PLAYBACK_PLAY);
     intentFilter.addAction(BROADCAST_PLAYBACK_EXIT);
     registerReceiverRemote(intentFilter);
+    reactContext.addLifecycleEventListener(this);
+    reactContext.registerComponentCallbacks(mMemoryCallbacks);
   }
 
   @Override
@@ -88,7 +139,13 @@ public class SoundPlayerModule extends ReactContextBaseJavaModule implements Med
   }
 
   public void emitEvent(String event, WritableMap data) {
+    if (mNotificationPlayer != null)
+      emitEvent(mNotificationPlayer, event, data);
+  }
+
+  private void emitEvent(Player player, String event, WritableMap data) {
     WritableMap payload = new WritableNativeMap();
+    payload.putInt("playerId", player.id);
     payload.putString("event", event);
     payload.putMap("data", data);
 
@@ -107,6 +164,9 @@ public class SoundPlayerModule extends ReactContextBaseJavaModule implements Med
       stackTraceString += e.toString() + "\n";
     }
 
+    if (!"cancelled".equals(code))
+      mMetrics.increment("error." + code);
+
     err.putString("err", code);
     err.putString("message", message);
 
@@ -123,75 +183,340 @@ public class SoundPlayerModule extends ReactContextBaseJavaModule implements Med
     return errObj(code, message, true);
   }
 
-  private Uri uriFromPath(String path) {
-    File file = null;
-    String fileNameWithoutExt;
-    String extPath;
+  /**
+   * Whether path plays from the network, where preparing can take seconds.
+   */
+  private boolean isStream(String path) {
+    String scheme = mPathResolver.resolve(path).getScheme();
+    return "http".equals(scheme) || "https".equals(scheme) || "rtsp".equals(scheme);
+  }
 
-    // Try finding file in Android "raw" resources
-    if (path.lastIndexOf('.') != -1) {
-        fileNameWithoutExt = path.substring(0, path.lastIndexOf('.'));
-    } else {
-        fileNameWithoutExt = path;
+  private Uri uriFromPath(String path) {
+    Uri uri = mPathResolver.resolve(path);
+    String scheme = uri.getScheme();
+
+    if (mCacheProxy != null && ("http".equals(scheme) || "https".equals(scheme))) {
+      try {
+        return Uri.parse(mCacheProxy.proxyUrl(uri.toString()));
+      } catch (IOException e) {
+        Log.w(LOG_TAG, "Stream cache unavailable, playing directly: " + e.toString());
+      }
     }
+    return uri;
+  }
 
-    int resId = this.context.getResources().getIdentifier(fileNameWithoutExt,
-        "raw", this.context.getPackageName());
-    if (resId != 0) {
-        return Uri.parse("android.resource://" + this.context.getPackageName() + "/" + resId);
-    }
+  /**
+   * Route remote tracks through a loopback caching proxy.
+   * Options: enabled (bool), maxSize (bytes on disk, default 100MB).
+   */
+  @ReactMethod
+  public void setStreamCache(ReadableMap options, final Callback callback) {
+    final boolean enabled = options.hasKey("enabled") && options.getBoolean("enabled");
+    final long maxSize = options.hasKey("maxSize") ? (long) options.getDouble("maxSize") : DEFAULT_STREAM_CACHE_BYTES;
+
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        if (mCacheProxy != null) {
+          mCacheProxy.shutdown();
+          mCacheProxy = null;
+        }
+
+        if (enabled)
+          mCacheProxy = new CacheProxy(new File(context.getCacheDir(), "streams"), maxSize);
 
-    // Try finding file in app data directory
-    extPath = new ContextWrapper(this.context).getFilesDir() + "/" + path;
-    file = new File(extPath);
-    if (file.exists()) {
-        return Uri.fromFile(file);
+        callback.invoke();
+      }
+    });
+  }
+
+  /**
+   * Resolve paths ahead of time so later prepares of them skip the lookup.
+   */
+  @ReactMethod
+  public void preresolve(ReadableArray paths, final Callback callback) {
+    final List<String> list = new ArrayList<>();
+    for (int i = 0; i < paths.size(); i++) {
+      if (!paths.isNull(i))
+        list.add(paths.getString(i));
     }
 
-    // Try finding file on sdcard
-    extPath = Environment.getExternalStorageDirectory() + "/" + path;
-    file = new File(extPath);
-    if (file.exists()) {
-        return Uri.fromFile(file);
+    // Resolving probes the filesystem, keep it off the bridge
+    mWorker.execute(new Runnable() {
+      @Override
+      public void run() {
+        for (String path : list)
+          mPathResolver.resolve(path);
+        callback.invoke();
+      }
+    });
+  }
+
+  /**
+   * Hints paths likely to play next, most likely first. Their players are
+   * prepared in the background and handed over by a later prepare of the
+   * same path. Options: maxPlayers, maxBytes (estimated memory of the pool).
+   */
+  @ReactMethod
+  public void warm(ReadableArray paths, ReadableMap options, final Callback callback) {
+    final List<String> list = new ArrayList<>();
+    for (int i = 0; i < paths.size(); i++) {
+      if (!paths.isNull(i))
+        list.add(paths.getString(i));
     }
+    final int maxPlayers = options != null && options.hasKey("maxPlayers") ? options.getInt("maxPlayers") : -1;
+    final long maxBytes = options != null && options.hasKey("maxBytes") ? (long) options.getDouble("maxBytes") : -1;
+
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        mWarmPool.setLimits(maxPlayers, maxBytes);
+
+        // Least likely first, so the most likely ends up most recently used
+        for (int i = list.size() - 1; i >= 0; i--) {
+          String path = list.get(i);
+          if (mWarmPool.touch(path))
+            continue;
+
+          long bytes = WarmPool.estimateBytes(isStream(path));
+          if (!mWarmPool.fits(bytes))
+            continue;
+
+          try {
+            MediaPlayer mediaPlayer = createMediaPlayer(path);
+            mediaPlayer.prepareAsync();
+            mWarmPool.add(path, mediaPlayer, bytes);
+          } catch (Exception e) {
+            Log.w(LOG_TAG, "Could not warm " + path + ": " + e.toString());
+          }
+        }
+
+        WritableMap data = Arguments.createMap();
+        data.putInt("size", mWarmPool.size());
+        callback.invoke(null, data);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void clearWarm(Callback callback) {
+    clearWarmPool(callback);
+  }
+
+  /**
+   * @param callback invoked once the pool is empty, or null
+   */
+  private void clearWarmPool(final Callback callback) {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        mWarmPool.clear();
+        if (callback != null)
+          callback.invoke();
+      }
+    });
+  }
 
-    // Try finding file by full path
-    file = new File(path);
-    if (file.exists()) {
-        return Uri.fromFile(file);
+  @ReactMethod
+  public void clearPathCache(Callback callback) {
+    mPathResolver.clear();
+    callback.invoke();
+  }
+
+  /**
+   * Min/max peaks of a track, normalized to -1..1, decoded off the bridge
+   * thread and cached on disk per path, size and mtime.
+   */
+  @ReactMethod
+  public void getWaveform(final String path, final Integer buckets, final Callback callback) {
+    if (path == null || path.isEmpty()) {
+      callback.invoke(errObj("nopath", "Provided path was empty"));
+      return;
+    }
+    if (buckets == null || buckets < 1) {
+      callback.invoke(errObj("invalidarg", "buckets must be at least 1"));
+      return;
     }
 
-    // Otherwise pass whole path string as URI and hope for the best
-    return Uri.parse(path);
+    mWorker.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          WaveformExtractor.Peaks peaks = mWaveformExtractor.extract(path,
+              mPathResolver.resolve(path), mPathResolver.file(path), buckets);
+
+          WritableArray min = Arguments.createArray();
+          WritableArray max = Arguments.createArray();
+          for (int i = 0; i < peaks.min.length; i++) {
+            min.pushDouble(peaks.min[i] / 32768.0);
+            max.pushDouble(peaks.max[i] / 32768.0);
+          }
+
+          WritableMap data = Arguments.createMap();
+          data.putInt("buckets", peaks.min.length);
+          data.putArray("min", min);
+          data.putArray("max", max);
+          callback.invoke(null, data);
+        } catch (Exception e) {
+          callback.invoke(errObj("waveform", e.toString()));
+        }
+      }
+    });
+  }
+
+  private Player getPlayer(Integer playerId) {
+    return mPlayers.get(playerId);
+  }
+
+  private Player playerFor(MediaPlayer mediaPlayer) {
+    for (Player player : mPlayers.values()) {
+      if (player.owns(mediaPlayer))
+        return player;
+    }
+    return null;
   }
 
   @ReactMethod
-  public void destroy(Callback callback) {
-    if (mMediaPlayer != null) {
-      mMediaPlayer.release();
-      WritableMap data = new WritableNativeMap();
-      data.putString("message", "Destroyed player");
-      emitEvent("destroy", data);
+  public void destroy(final Integer playerId, final Callback callback) {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        doDestroy(playerId, callback);
+      }
+    });
+  }
+
+  private void doDestroy(Integer playerId, Callback callback) {
+    Player player = getPlayer(playerId);
+    if (player != null) {
+      release(player);
+      player.moveTo(PlaybackState.DESTROYED);
+      mPlayers.remove(player.id);
+      if (player == mNotificationPlayer) {
+        mNotificationPlayer = null;
+        clearNotification();
+      }
     }
 
     if (callback != null) {
       callback.invoke();
     }
-    stopTask();
   }
 
+  private void release(Player player) {
+    endCrossfade(player);
+    cancelPrepare(player);
+    releaseNext(player);
+    stopTask(player);
+    player.moveTo(PlaybackState.IDLE);
+    cancelSeeks(player);
+
+    if (player.mediaPlayer != null) {
+      player.mediaPlayer.release();
+      player.mediaPlayer = null;
+      WritableMap data = new WritableNativeMap();
+      data.putString("message", "Destroyed player");
+      emitEvent(player, "destroy", data);
+    }
+  }
+
+  /**
+   * Precise seek. The callback gets the player info once the player settled,
+   * which may be at the target of a later seek or scrub issued meanwhile.
+   */
+  @ReactMethod
+  public void seek(final Integer playerId, final Integer position, final Callback callback) {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        Player player = getPlayer(playerId);
+        if (player == null || player.mediaPlayer == null) {
+          callback.invoke(errObj("notfound", "mMediaPlayer not found."));
+          return;
+        }
+
+        if (position >= 0)
+          requestSeek(player, position, true, callback);
+        else
+          callback.invoke(null, getInfo(player.mediaPlayer));
+      }
+    });
+  }
+
+  /**
+   * Fast seek for timeline dragging: lands on the nearest keyframe (API 26+)
+   * and emits no "seeked" event. Finish the drag with a seek().
+   */
   @ReactMethod
-  public void seek(Integer position, Callback callback) {
-    if (mMediaPlayer == null) {
-      callback.invoke(errObj("notfound", "mMediaPlayer not found."));
+  public void scrub(final Integer playerId, final Integer position) {
+    mPlayerThread.post(PlayerThread.key(playerId, "scrub"), new Runnable() {
+      @Override
+      public void run() {
+        Player player = getPlayer(playerId);
+        if (player != null && player.mediaPlayer != null && position >= 0)
+          requestSeek(player, position, false, null);
+      }
+    });
+  }
+
+  /**
+   * While a seek is in flight only the latest target is kept; it is issued
+   * from onSeekComplete, so the decoder flushes once per settled seek instead
+   * of once per call. Merged seeks keep the strongest mode: a scrub replacing
+   * a pending seek() stays precise.
+   */
+  private void requestSeek(Player player, int position, boolean precise, Callback callback) {
+    if (callback != null)
+      player.seekCallbacks.add(callback);
+
+    if (player.seekInFlight) {
+      player.pendingSeekPrecise = precise || (player.pendingSeek >= 0 && player.pendingSeekPrecise);
+      player.pendingSeek = position;
       return;
     }
+    startSeek(player, position, precise);
+  }
 
-    if (position >= 0) {
-      mMediaPlayer.seekTo(position);
+  private void startSeek(Player player, int position, boolean precise) {
+    player.seekInFlight = true;
+    player.seekPrecise = precise;
+    player.seekStart = Metrics.now();
+
+    try {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O)
+        player.mediaPlayer.seekTo(position, precise ? MediaPlayer.SEEK_CLOSEST : MediaPlayer.SEEK_CLOSEST_SYNC);
+      else
+        player.mediaPlayer.seekTo(position);
+    } catch (IllegalStateException e) {
+      player.seekInFlight = false;
+      player.seekStart = 0;
+      failSeeks(player, errObj("seek", e.toString()));
     }
   }
 
+  /**
+   * Drops seeks of a player whose MediaPlayer went away. A cancellation,
+   * not a failure: it isn't counted in the error metrics.
+   */
+  private void cancelSeeks(Player player) {
+    player.seekInFlight = false;
+    player.seekStart = 0;
+    player.pendingSeek = -1;
+    player.seekedDue = false;
+    if (player.seekCallbacks.isEmpty())
+      return;
+    failSeeks(player, errObj("cancelled", "Player was released", false));
+  }
+
+  private void failSeeks(Player player, WritableMap err) {
+    player.pendingSeek = -1;
+    player.seekedDue = false;
+    List<Callback> callbacks = new ArrayList<>(player.seekCallbacks);
+    player.seekCallbacks.clear();
+    for (Callback callback : callbacks)
+      callback.invoke(err);
+  }
+
   private WritableMap getInfo(MediaPlayer player) {
     WritableMap info = Arguments.createMap();
 
@@ -203,208 +528,1204 @@ public class SoundPlayerModule extends ReactContextBaseJavaModule implements Med
   }
 
   @ReactMethod
-  public void setUrl(String path, Callback callback) {
-    this.prepare(path, callback);
+  public void setUrl(Integer playerId, String path, Callback callback) {
+    this.prepare(playerId, path, callback);
+  }
+
+  private Player preparePlayer(Integer playerId, String path) {
+    Player player = getPlayer(playerId);
+    if (player == null) {
+      player = new Player(playerId);
+      mPlayers.put(playerId, player);
+    }
+
+    release(player);
+    player.filepath = path;
+    player.queue = null;
+    return player;
+  }
+
+  private MediaPlayer createMediaPlayer(String path) throws IOException {
+    MediaPlayer mediaPlayer = new MediaPlayer();
+
+    try {
+      mediaPlayer.setDataSource(this.context, uriFromPath(path));
+    } catch (IOException e) {
+      mediaPlayer.release();
+      mPathResolver.invalidate(path);
+      throw e;
+    }
+
+    mediaPlayer.setOnInfoListener(this);
+    mediaPlayer.setOnCompletionListener(this);
+    mediaPlayer.setOnSeekCompleteListener(this);
+    mediaPlayer.setOnPreparedListener(this);
+    mediaPlayer.setOnErrorListener(this);
+    return mediaPlayer;
+  }
+
+  /**
+   * Prepares on the player thread; a prepare, prepareAsync or setQueue queued
+   * behind it for the same player replaces it and answers it as cancelled.
+   */
+  private void postPrepare(Integer playerId, final Callback callback, final Runnable prepare) {
+    mPlayerThread.post(PlayerThread.key(playerId, "prepare"), new PlayerThread.Command() {
+      @Override
+      public void run() {
+        prepare.run();
+      }
+
+      @Override
+      void superseded() {
+        callback.invoke(errObj("cancelled", "Prepare was superseded", false));
+      }
+    });
   }
 
   @ReactMethod
-  public void prepare(String path, Callback callback) {
+  public void prepare(final Integer playerId, final String path, final Callback callback) {
+    postPrepare(playerId, callback, new Runnable() {
+      @Override
+      public void run() {
+        doPrepare(playerId, path, callback);
+      }
+    });
+  }
+
+  private void doPrepare(Integer playerId, String path, Callback callback) {
     if (path == null || path.isEmpty()) {
       callback.invoke(errObj("nopath", "Provided path was empty"));
       return;
     }
 
-    this.filepath = path;
+    Player player = preparePlayer(playerId, path);
+    if (isStream(path)) {
+      // A blocking prepare of a stream would hold the player thread, and
+      // every player's commands and ticks behind it, for as long as the
+      // network takes; the callback comes from onPrepared instead
+      startPrepareAsync(player, path, callback);
+      return;
+    }
 
-    destroy(null);
+    if (takeWarm(player, path, callback))
+      return;
 
-    Uri uri = uriFromPath(path);
+    MediaPlayer mediaPlayer;
+    try {
+      mediaPlayer = createMediaPlayer(path);
+    } catch (IOException e) {
+      player.moveTo(PlaybackState.ERROR);
+      callback.invoke(errObj("invalidpath", e.toString()));
+      return;
+    }
+    player.mediaPlayer = mediaPlayer;
 
-    this.mMediaPlayer =  new MediaPlayer();
+    long start = Metrics.now();
+    mMetrics.beginSection("prepare");
+    player.moveTo(PlaybackState.PREPARING);
+    try {
+      mediaPlayer.prepare();
+      mMetrics.record("prepare", start);
+      player.moveTo(PlaybackState.PREPARED);
+      callback.invoke(null, getInfo(mediaPlayer));
+    } catch (Exception e) {
+      player.moveTo(PlaybackState.ERROR);
+      callback.invoke(errObj("prepare", e.toString()));
+    } finally {
+      mMetrics.endSection();
+    }
+  }
+
+  /**
+   * Same as prepare, but lets MediaPlayer buffer on its own thread so the bridge
+   * is not blocked by slow streams. A later prepare/destroy cancels this one.
+   */
+  @ReactMethod
+  public void prepareAsync(final Integer playerId, final String path, final Callback callback) {
+    if (path == null || path.isEmpty()) {
+      callback.invoke(errObj("nopath", "Provided path was empty"));
+      return;
+    }
 
+    postPrepare(playerId, callback, new Runnable() {
+      @Override
+      public void run() {
+        startPrepareAsync(preparePlayer(playerId, path), path, callback);
+      }
+    });
+  }
+
+  /**
+   * Hands the warm player of path, if any, over to player. A prepared one
+   * answers right away; one still buffering is finished by onPrepared like
+   * a prepareAsync, for the sync prepare too.
+   */
+  private boolean takeWarm(Player player, String path, Callback callback) {
+    WarmPool.Entry warm = mWarmPool.take(path);
+    if (warm == null)
+      return false;
+
+    mMetrics.increment("warm.hit");
+    player.moveTo(PlaybackState.PREPARING);
+    player.prepareStart = Metrics.now();
+    if (warm.prepared) {
+      player.mediaPlayer = warm.mediaPlayer;
+      player.moveTo(PlaybackState.PREPARED);
+      mMetrics.record("prepare", player.prepareStart);
+      callback.invoke(null, getInfo(warm.mediaPlayer));
+      prepareNext(player);
+    } else {
+      // Still buffering, onPrepared finishes the hand-over
+      player.preparingPlayer = warm.mediaPlayer;
+      player.prepareCallback = callback;
+    }
+    return true;
+  }
+
+  private void startPrepareAsync(Player player, String path, Callback callback) {
+    if (takeWarm(player, path, callback))
+      return;
+
+    MediaPlayer mediaPlayer;
     try {
-      this.mMediaPlayer.reset();
-      this.mMediaPlayer.setDataSource(this.context, uri);
+      mediaPlayer = createMediaPlayer(path);
     } catch (IOException e) {
+      player.moveTo(PlaybackState.ERROR);
       callback.invoke(errObj("invalidpath", e.toString()));
       return;
     }
 
-    this.mMediaPlayer.setOnInfoListener(this);
-    this.mMediaPlayer.setOnCompletionListener(this);
-    this.mMediaPlayer.setOnSeekCompleteListener(this);
+    player.moveTo(PlaybackState.PREPARING);
+    player.preparingPlayer = mediaPlayer;
+    player.prepareStart = Metrics.now();
+    player.prepareCallback = callback;
 
     try {
-      this.mMediaPlayer.prepare();
-      callback.invoke(null, getInfo(mMediaPlayer));
+      mediaPlayer.prepareAsync();
     } catch (Exception e) {
+      player.preparingPlayer = null;
+      player.prepareCallback = null;
+      player.moveTo(PlaybackState.ERROR);
+      mediaPlayer.release();
       callback.invoke(errObj("prepare", e.toString()));
     }
   }
 
+  /**
+   * Gapless queue mode: the first item is prepared like prepareAsync, and while
+   * each item plays the following one is prepared in the background and chained
+   * with setNextMediaPlayer, so tracks change without a JS round-trip.
+   *
+   * Items are paths, or maps with a path plus title/singer/author/image_url
+   * that replace the notification metadata when the item starts.
+   */
+  @ReactMethod
+  public void setQueue(final Integer playerId, ReadableArray items, final Callback callback) {
+    final List<PlayQueue.Item> queue = queueItems(items);
+    if (queue.isEmpty()) {
+      callback.invoke(errObj("nopath", "Provided queue was empty"));
+      return;
+    }
+
+    postPrepare(playerId, callback, new Runnable() {
+      @Override
+      public void run() {
+        PlayQueue.Item first = queue.get(0);
+        Player player = preparePlayer(playerId, first.path);
+        player.queue = new PlayQueue();
+        player.queue.set(queue, 0);
+        applyItemMeta(player, first);
+        startPrepareAsync(player, first.path, callback);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void appendQueue(final Integer playerId, ReadableArray items, final Callback callback) {
+    final List<PlayQueue.Item> added = queueItems(items);
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        Player player = getPlayer(playerId);
+        if (player == null || player.queue == null) {
+          callback.invoke(errObj("noqueue", "No queue set for this player"));
+          return;
+        }
+
+        player.queue.append(added);
+        refreshNext(player);
+        callback.invoke(null, queueInfo(player));
+      }
+    });
+  }
+
+  @ReactMethod
+  public void skipNext(Integer playerId, Callback callback) {
+    postSkip(playerId, 1, -1, callback);
+  }
+
+  @ReactMethod
+  public void skipPrevious(Integer playerId, Callback callback) {
+    postSkip(playerId, -1, -1, callback);
+  }
+
+  @ReactMethod
+  public void skipTo(Integer playerId, Integer index, Callback callback) {
+    postSkip(playerId, 0, index, callback);
+  }
+
+  @ReactMethod
+  public void setShuffle(final Integer playerId, final Boolean shuffle, final Callback callback) {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        Player player = getPlayer(playerId);
+        if (player == null || player.queue == null) {
+          callback.invoke(errObj("noqueue", "No queue set for this player"));
+          return;
+        }
+
+        player.queue.setShuffle(shuffle);
+        refreshNext(player);
+        callback.invoke(null, queueInfo(player));
+      }
+    });
+  }
+
+  /**
+   * Repeat mode of the queue: "none", "one" or "all".
+   */
   @ReactMethod
-  public void set(ReadableMap options, Callback callback) {
-      if (mMediaPlayer == null) {
-        callback.invoke(errObj("notfound", "mMediaPlayer not found."));
+  public void setRepeat(final Integer playerId, final String repeat, final Callback callback) {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        Player player = getPlayer(playerId);
+        if (player == null || player.queue == null) {
+          callback.invoke(errObj("noqueue", "No queue set for this player"));
+          return;
+        }
+
+        player.queue.setRepeat(PlayQueue.Repeat.fromName(repeat));
+        refreshNext(player);
+        callback.invoke(null, queueInfo(player));
+      }
+    });
+  }
+
+  /**
+   * Notification entry points: skip natively when the notification player
+   * has a queue and tell JS afterwards through "trackchanged"; without a
+   * queue JS picks the track, as before.
+   */
+  public void skipNext() {
+    skipRemote(1, BROADCAST_PLAYBACK_NEXT);
+  }
+
+  public void skipPrevious() {
+    skipRemote(-1, BROADCAST_PLAYBACK_PREVIOUS);
+  }
+
+  private void skipRemote(final int delta, final String event) {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        Player player = mNotificationPlayer;
+        if (player == null)
+          return;
+
+        if (player.queue == null) {
+          emitEvent(player, event, null);
+          return;
+        }
+
+        int index = player.queue.skipIndex(delta);
+        if (index >= 0)
+          skip(player, index, null);
+      }
+    });
+  }
+
+  private void postSkip(final Integer playerId, final int delta, final int index, final Callback callback) {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        Player player = getPlayer(playerId);
+        if (player == null || player.queue == null) {
+          callback.invoke(errObj("noqueue", "No queue set for this player"));
+          return;
+        }
+
+        int target = delta != 0 ? player.queue.skipIndex(delta) : index;
+        if (target < 0 || target >= player.queue.size()) {
+          callback.invoke(errObj("queueend", "No queue item to skip to", false));
+          return;
+        }
+        skip(player, target, callback);
+      }
+    });
+  }
+
+  /**
+   * Makes queue item index current, keeping play/pause. Uses the prepared
+   * next player when it is the one asked for, otherwise prepares the item.
+   */
+  private void skip(final Player player, int index, final Callback callback) {
+    final boolean playing = player.isPlaying();
+
+    if (player.nextReady && index == player.nextIndex) {
+      if (playing && player.crossfadeMs > 0 && player.crossfade == null) {
+        startCrossfade(player);
+        if (callback != null)
+          callback.invoke(null, queueInfo(player));
         return;
       }
 
-      if (options.hasKey("wakeLock") && options.getBoolean("wakeLock"))
-        mMediaPlayer.setWakeMode(this.context, PowerManager.PARTIAL_WAKE_LOCK);
+      endCrossfade(player);
+      if (playing)
+        player.nextPlayer.start();
+      else
+        player.moveTo(PlaybackState.PREPARED);
+      advanceQueue(player);
+      if (callback != null)
+        callback.invoke(null, queueInfo(player));
+      return;
+    }
 
-      if (options.hasKey("volume") && !options.isNull("volume")) {
-        double vol = options.getDouble("volume");
-        mMediaPlayer.setVolume((float) vol, (float) vol);
+    endCrossfade(player);
+    cancelPrepare(player);
+    releaseNext(player);
+    stopTask(player);
+    cancelSeeks(player);
+    if (player.mediaPlayer != null) {
+      player.mediaPlayer.release();
+      player.mediaPlayer = null;
+    }
+    player.moveTo(PlaybackState.IDLE);
+
+    player.queue.moveTo(index);
+    final PlayQueue.Item item = player.queue.current();
+    player.filepath = item.path;
+    applyItemMeta(player, item);
+
+    startPrepareAsync(player, item.path, new Callback() {
+      @Override
+      public void invoke(Object... args) {
+        if (args.length > 0 && args[0] != null) {
+          // Superseded by a newer skip or prepare, or failed
+          if (callback != null)
+            callback.invoke(args);
+          return;
+        }
+
+        if (playing) {
+          try {
+            play(player);
+          } catch (Exception e) {
+            Log.e(LOG_TAG, e.toString());
+          }
+        }
+        emitTrackChanged(player);
+        if (callback != null)
+          callback.invoke(null, queueInfo(player));
       }
+    });
+  }
+
+  private void prepareNext(Player player) {
+    releaseNext(player);
+    if (player.queue == null)
+      return;
+
+    int index = player.queue.completionIndex();
+    // Repeat one replays through the looping path
+    if (index < 0 || index == player.queue.currentIndex())
+      return;
+
+    try {
+      player.nextPlayer = createMediaPlayer(player.queue.item(index).path);
+      player.nextIndex = index;
+      player.nextPlayer.prepareAsync();
+    } catch (Exception e) {
+      releaseNext(player);
+      WritableMap data = new WritableNativeMap();
+      data.putString("message", "Could not prepare next queue item: " + e.toString());
+      emitEvent(player, "error", data);
+    }
+  }
+
+  /**
+   * Re-prepares the next player after the queue order changed under it.
+   */
+  private void refreshNext(Player player) {
+    if (player.mediaPlayer == null)
+      return;
+
+    int index = player.queue.completionIndex();
+    if (player.nextPlayer == null || index != player.nextIndex)
+      prepareNext(player);
+  }
+
+  private void releaseNext(Player player) {
+    if (player.nextPlayer == null)
+      return;
+
+    if (player.mediaPlayer != null && player.nextReady)
+      player.mediaPlayer.setNextMediaPlayer(null);
+    player.nextPlayer.release();
+    player.nextPlayer = null;
+    player.nextIndex = -1;
+    player.nextReady = false;
+    player.startNextWhenReady = false;
+  }
+
+  private void onNextPrepared(Player player) {
+    player.nextReady = true;
 
-      if (options.hasKey("looping") && !options.isNull("looping"))
-        this.looping = options.getBoolean("looping");
+    player.nextPlayer.setVolume(player.volume, player.volume);
 
-      if (options.hasKey("title"))
-        mMediaMeta.putString("title", options.getString("title"));
+    if (player.startNextWhenReady) {
+      // Current item already finished, hand over late instead of gaplessly
+      player.nextPlayer.start();
+      advanceQueue(player);
+    } else {
+      chainNext(player);
+      scheduleCrossfade(player);
+    }
+  }
 
-      if (options.hasKey("singer"))
-        mMediaMeta.putString("singer", options.getString("singer"));
+  /**
+   * Chains the prepared next item for a gapless hand-over, or unchains it
+   * while looping or crossfading, where the hand-over happens elsewhere.
+   */
+  private void chainNext(Player player) {
+    if (player.mediaPlayer == null || !player.nextReady)
+      return;
+    boolean chained = !player.looping && player.crossfadeMs <= 0;
+    player.mediaPlayer.setNextMediaPlayer(chained ? player.nextPlayer : null);
+  }
 
-      if (options.hasKey("author"))
-        mMediaMeta.putString("author", options.getString("author"));
+  private void advanceQueue(Player player) {
+    advanceQueue(player, false);
+  }
 
-      if (options.hasKey("image_url"))
-        mMediaMeta.putString("image_url", options.getString("image_url"));
+  /**
+   * @param keepFinished leave the previous player running, a crossfade owns it
+   */
+  private void advanceQueue(Player player, boolean keepFinished) {
+    MediaPlayer finished = player.mediaPlayer;
+    player.mediaPlayer = player.nextPlayer;
+    player.queue.moveTo(player.nextIndex);
+    player.nextPlayer = null;
+    player.nextIndex = -1;
+    player.nextReady = false;
+    player.startNextWhenReady = false;
+    player.filepath = player.queue.current().path;
+    applyItemMeta(player, player.queue.current());
+
+    if (finished != null && !keepFinished)
+      finished.release();
+    cancelSeeks(player);
+
+    emitTrackChanged(player);
+    prepareNext(player);
+  }
 
-      if (options.hasKey("looping") && !options.isNull("looping"))
-        this.looping = options.getBoolean("looping");
+  /**
+   * Crossfade between queue items: duration in ms (0 turns it off and goes
+   * back to gapless hand-over) and curve "linear", "equalPower" or "sCurve".
+   */
+  @ReactMethod
+  public void setCrossfade(final Integer playerId, ReadableMap options, final Callback callback) {
+    final long duration = options.hasKey("duration") ? (long) options.getDouble("duration") : 0;
+    final FadeCurve curve = options.hasKey("curve") && !options.isNull("curve")
+        ? FadeCurve.fromName(options.getString("curve")) : FadeCurve.EQUAL_POWER;
 
-      if (options.hasKey("looping") && !options.isNull("looping"))
-        this.looping = options.getBoolean("looping");
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        Player player = getPlayer(playerId);
+        if (player == null) {
+          callback.invoke(errObj("notfound", "mMediaPlayer not found."));
+          return;
+        }
 
-      if (options.hasKey("speed") || options.hasKey("pitch")) {
-          PlaybackParams params = new PlaybackParams();
+        player.crossfadeMs = Math.max(0, duration);
+        player.crossfadeCurve = curve;
+        chainNext(player);
+        scheduleCrossfade(player);
+        callback.invoke();
+      }
+    });
+  }
 
-          if (options.hasKey("speed") && !options.isNull("speed")) {
-              params.setSpeed((float) options.getDouble("speed"));
+  /**
+   * Arms the crossfade to start crossfadeMs before the current item ends.
+   * Re-armed whenever the timeline moves: play, seek, rate changes, track
+   * changes and when the next item becomes ready.
+   */
+  private void scheduleCrossfade(final Player player) {
+    Handler handler = mPlayerThread.getHandler();
+    if (player.crossfadeTrigger != null)
+      handler.removeCallbacks(player.crossfadeTrigger);
+
+    MediaPlayer mediaPlayer = player.mediaPlayer;
+    boolean repeatOne = player.queue != null && player.queue.repeat() == PlayQueue.Repeat.ONE;
+    if (player.crossfadeMs <= 0 || player.queue == null || mediaPlayer == null || player.crossfade != null
+        || player.looping || repeatOne || !mediaPlayer.isPlaying())
+      return;
+
+    if (player.crossfadeTrigger == null) {
+      player.crossfadeTrigger = new Runnable() {
+        @Override
+        public void run() {
+          startCrossfade(player);
+        }
+      };
+    }
+
+    long remaining = mediaPlayer.getDuration() - mediaPlayer.getCurrentPosition() - player.crossfadeMs;
+    handler.postDelayed(player.crossfadeTrigger, Math.max(0, (long) (remaining / player.rate)));
+  }
+
+  /**
+   * Starts the prepared next item under a fade and makes it current; the
+   * outgoing player keeps playing until the fade ends. Without a prepared
+   * next item the completion path hands over without a fade.
+   */
+  private void startCrossfade(final Player player) {
+    MediaPlayer outgoing = player.mediaPlayer;
+    if (!player.nextReady || player.crossfade != null || outgoing == null || !outgoing.isPlaying())
+      return;
+
+    long remaining = Math.max(0, outgoing.getDuration() - outgoing.getCurrentPosition());
+    long duration = Math.min(player.crossfadeMs, (long) (remaining / player.rate));
+    player.crossfade = new Crossfade(outgoing, player.nextPlayer, duration, player.crossfadeCurve,
+        player.volume, mPlayerThread.getHandler(), new Crossfade.Listener() {
+          @Override
+          public void onCrossfadeEnd(Crossfade crossfade) {
+            if (player.crossfade != crossfade)
+              return;
+            player.crossfade = null;
+            scheduleCrossfade(player);
           }
+        });
+    player.crossfade.start();
+    advanceQueue(player, true);
+  }
+
+  /**
+   * Cuts a running crossfade short and disarms the trigger.
+   */
+  private void endCrossfade(Player player) {
+    if (player.crossfadeTrigger != null)
+      mPlayerThread.getHandler().removeCallbacks(player.crossfadeTrigger);
+
+    Crossfade crossfade = player.crossfade;
+    if (crossfade != null) {
+      player.crossfade = null;
+      crossfade.finish();
+    }
+  }
+
+  private void emitTrackChanged(Player player) {
+    emitEvent(player, "trackchanged", queueInfo(player));
+    emitAnchor(player);
+    if (player == mNotificationPlayer)
+      showNotification();
+  }
+
+  private WritableMap queueInfo(Player player) {
+    WritableMap data = player.mediaPlayer != null ? getInfo(player.mediaPlayer) : Arguments.createMap();
+    data.putInt("index", player.queue.currentIndex());
+    data.putString("path", player.filepath);
+    data.putBoolean("shuffle", player.queue.shuffle());
+    data.putString("repeat", player.queue.repeat().name().toLowerCase());
+    return data;
+  }
+
+  private void applyItemMeta(Player player, PlayQueue.Item item) {
+    for (Entry<String, String> entry : item.meta.entrySet())
+      player.meta.putString(entry.getKey(), entry.getValue());
+  }
+
+  private List<PlayQueue.Item> queueItems(ReadableArray items) {
+    List<PlayQueue.Item> queue = new ArrayList<>();
+    if (items == null)
+      return queue;
+
+    for (int i = 0; i < items.size(); i++) {
+      if (items.isNull(i))
+        continue;
+
+      Map<String, String> meta = new HashMap<>();
+      if (items.getType(i) == ReadableType.Map) {
+        ReadableMap item = items.getMap(i);
+        for (String key : new String[] { "title", "singer", "author", "image_url" }) {
+          if (item.hasKey(key) && !item.isNull(key))
+            meta.put(key, item.getString(key));
+        }
+        queue.add(new PlayQueue.Item(item.getString("path"), meta));
+      } else {
+        queue.add(new PlayQueue.Item(items.getString(i), meta));
+      }
+    }
+    return queue;
+  }
+
+  private void cancelPrepare(Player player) {
+    if (player.preparingPlayer == null)
+      return;
+
+    Callback callback = player.prepareCallback;
+    player.preparingPlayer.release();
+    player.preparingPlayer = null;
+    player.prepareCallback = null;
+
+    if (callback != null)
+      callback.invoke(errObj("cancelled", "Prepare was superseded", false));
+  }
+
+  @Override
+  public void onPrepared(MediaPlayer mediaPlayer) {
+    Player player = playerFor(mediaPlayer);
+    if (player != null && mediaPlayer == player.nextPlayer) {
+      onNextPrepared(player);
+      return;
+    }
+
+    if (player != null && mediaPlayer == player.mediaPlayer)
+      return;
+
+    if (player == null && mWarmPool.owns(mediaPlayer)) {
+      mWarmPool.onPrepared(mediaPlayer);
+      return;
+    }
+
+    if (player == null || mediaPlayer != player.preparingPlayer) {
+      // Cancelled while buffering
+      mediaPlayer.release();
+      return;
+    }
+
+    mMetrics.record("prepare", player.prepareStart);
+    Callback callback = player.prepareCallback;
+    player.mediaPlayer = mediaPlayer;
+    player.preparingPlayer = null;
+    player.prepareCallback = null;
+    player.moveTo(PlaybackState.PREPARED);
+
+    if (callback != null)
+      callback.invoke(null, getInfo(mediaPlayer));
+
+    prepareNext(player);
+  }
+
+  @Override
+  public boolean onError(MediaPlayer mediaPlayer, int what, int extra) {
+    mMetrics.increment("error");
+    Player player = playerFor(mediaPlayer);
+    if (player == null) {
+      if (mWarmPool.owns(mediaPlayer)) {
+        mWarmPool.onError(mediaPlayer);
+        return true;
+      }
+      return false;
+    }
+
+    if (mediaPlayer == player.preparingPlayer) {
+      Callback callback = player.prepareCallback;
+      player.preparingPlayer.release();
+      player.preparingPlayer = null;
+      player.prepareCallback = null;
+      player.moveTo(PlaybackState.ERROR);
+
+      if (callback != null)
+        callback.invoke(errObj("prepare", "MediaPlayer error " + what + " (" + extra + ")"));
+      return true;
+    }
+
+    if (player.crossfade != null && mediaPlayer == player.crossfade.outgoing) {
+      endCrossfade(player);
+      scheduleCrossfade(player);
+      return true;
+    }
+
+    if (mediaPlayer == player.nextPlayer) {
+      // Queue stops after the current item rather than failing it
+      releaseNext(player);
+    }
+
+    WritableMap err = new WritableNativeMap();
+    err.putInt("what", what);
+    err.putInt("extra", extra);
+
+    WritableMap data = new WritableNativeMap();
+    data.putMap("err", err);
+    data.putString("message", "Android MediaPlayer error");
+    if (mediaPlayer == player.mediaPlayer)
+      player.moveTo(PlaybackState.ERROR);
+    emitEvent(player, "error", data);
+    return false;
+  }
+
+  @ReactMethod
+  public void set(final Integer playerId, ReadableMap options, final Callback callback) {
+    // Volume and playback params come in bursts from sliders; they are queued
+    // on their own so a newer value replaces one not applied yet
+    if (options.hasKey("volume") && !options.isNull("volume")) {
+      final float volume = (float) options.getDouble("volume");
+      mPlayerThread.post(PlayerThread.key(playerId, "volume"), new Runnable() {
+        @Override
+        public void run() {
+          Player player = getPlayer(playerId);
+          if (player == null)
+            return;
+          player.volume = volume;
+          if (player.crossfade != null)
+            player.crossfade.setVolume(volume);
+          else if (player.mediaPlayer != null)
+            player.mediaPlayer.setVolume(volume, volume);
+          // Unprepared next players get it in onNextPrepared
+          if (player.nextPlayer != null && player.nextReady)
+            player.nextPlayer.setVolume(volume, volume);
+        }
+      });
+    }
+
+    if (options.hasKey("speed") || options.hasKey("pitch")) {
+      final Float speed = options.hasKey("speed") && !options.isNull("speed") ? (float) options.getDouble("speed") : null;
+      final Float pitch = options.hasKey("pitch") && !options.isNull("pitch") ? (float) options.getDouble("pitch") : null;
+      mPlayerThread.post(PlayerThread.key(playerId, "params"), new Runnable() {
+        @Override
+        public void run() {
+          Player player = getPlayer(playerId);
+          if (player != null && player.mediaPlayer != null)
+            setPlaybackParams(player, speed, pitch);
+        }
+      });
+    }
+
+    final boolean wakeLock = options.hasKey("wakeLock") && options.getBoolean("wakeLock");
+    final Boolean looping = options.hasKey("looping") && !options.isNull("looping") ? options.getBoolean("looping") : null;
+    final Map<String, String> meta = new HashMap<>();
+    for (String key : new String[] { "title", "singer", "author", "image_url" }) {
+      if (options.hasKey(key))
+        meta.put(key, options.getString(key));
+    }
+    final String progressMode = options.hasKey("progressMode") && !options.isNull("progressMode") ? options.getString("progressMode") : null;
+    final boolean showNotification = options.hasKey("showNotification") && options.getBoolean("showNotification");
+
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        Player player = getPlayer(playerId);
+        if (player == null || player.mediaPlayer == null) {
+          callback.invoke(errObj("notfound", "mMediaPlayer not found."));
+          return;
+        }
+        MediaPlayer mediaPlayer = player.mediaPlayer;
 
-          if (options.hasKey("pitch") && !options.isNull("pitch")) {
-              params.setPitch((float) options.getDouble("pitch"));
+        if (wakeLock)
+          mediaPlayer.setWakeMode(context, PowerManager.PARTIAL_WAKE_LOCK);
+
+        if (looping != null) {
+          player.looping = looping;
+          chainNext(player);
+          scheduleCrossfade(player);
+        }
+
+        for (Entry<String, String> entry : meta.entrySet())
+          player.meta.putString(entry.getKey(), entry.getValue());
+
+        if (progressMode != null) {
+          boolean anchorMode = "anchor".equals(progressMode);
+          if (anchorMode != player.anchorMode) {
+            player.anchorMode = anchorMode;
+            if (anchorMode) {
+              stopTask(player);
+              emitAnchor(player);
+            } else if (mediaPlayer.isPlaying()) {
+              doTimerTask(player);
+            }
           }
+        }
 
-          mMediaPlayer.setPlaybackParams(params);
+        if (showNotification) {
+          mNotificationPlayer = player;
+          showNotification();
+        }
+
+        callback.invoke();
       }
+    });
+  }
 
-      if (options.hasKey("showNotification") && options.getBoolean("showNotification"))
-        this.showNotification();
+  private void setPlaybackParams(Player player, Float speed, Float pitch) {
+    PlaybackParams params = new PlaybackParams();
 
-      callback.invoke();
+    if (speed != null) {
+        params.setSpeed(speed);
+    }
+
+    if (pitch != null) {
+        params.setPitch(pitch);
+    }
+
+    player.mediaPlayer.setPlaybackParams(params);
+    player.rate = params.getSpeed();
+    emitAnchor(player);
+    scheduleCrossfade(player);
   }
 
+  /**
+   * Runs an ordered list of operations in one bridge call, e.g.
+   * [{op: "prepareAsync", path}, {op: "set", options}, {op: "play"}]. Ops are
+   * prepare, prepareAsync, set, play, pause, stop and seek (with position).
+   * The callback gets the first error, if any, and the result of every op
+   * that ran, in order; an error stops the chain.
+   */
   @ReactMethod
-  public void play(Callback callback) {
-    try {
-      this.play();
-      callback.invoke(null, getInfo(mMediaPlayer));
-    } catch (Exception e) {
-      callback.invoke(errObj("playback", e.toString()));
+  public void execute(Integer playerId, ReadableArray commands, Callback callback) {
+    new CommandChain(playerId, commands, callback).next();
+  }
+
+  /**
+   * Feeds each op the chain itself as callback, so the next op starts when
+   * the previous one answered, on the player thread.
+   */
+  private class CommandChain implements Callback {
+    private final Integer playerId;
+    private final ReadableArray commands;
+    private final Callback callback;
+    private final WritableArray results = Arguments.createArray();
+    private int index = 0;
+
+    CommandChain(Integer playerId, ReadableArray commands, Callback callback) {
+      this.playerId = playerId;
+      this.commands = commands;
+      this.callback = callback;
+    }
+
+    @Override
+    public void invoke(Object... args) {
+      Object result = args.length > 1 ? args[1] : null;
+      if (result instanceof WritableMap)
+        results.pushMap((WritableMap) result);
+      else
+        results.pushNull();
+
+      if (args.length > 0 && args[0] != null) {
+        callback.invoke(args[0], results);
+        return;
+      }
+      next();
+    }
+
+    void next() {
+      if (commands == null || index >= commands.size()) {
+        callback.invoke(null, results);
+        return;
+      }
+
+      ReadableMap command = commands.getMap(index++);
+      String op = command.hasKey("op") ? command.getString("op") : "";
+      switch (op) {
+        case "prepare":
+          prepare(playerId, command.getString("path"), this);
+          break;
+        case "prepareAsync":
+          prepareAsync(playerId, command.getString("path"), this);
+          break;
+        case "set":
+          set(playerId, command.getMap("options"), this);
+          break;
+        case "play":
+          play(playerId, this);
+          break;
+        case "pause":
+          pause(playerId, this);
+          break;
+        case "stop":
+          stop(playerId, this);
+          break;
+        case "seek":
+          seek(playerId, command.getInt("position"), this);
+          break;
+        default:
+          callback.invoke(errObj("invalidarg", "Unknown command " + op), results);
+      }
     }
   }
 
-  public void play() throws Exception
+  @ReactMethod
+  public void play(final Integer playerId, final Callback callback) {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        Player player = getPlayer(playerId);
+        try {
+          play(player);
+          callback.invoke(null, getInfo(player.mediaPlayer));
+        } catch (Exception e) {
+          callback.invoke(errObj("playback", e.toString()));
+        }
+      }
+    });
+  }
+
+  /**
+   * Notification and phone state entry points, they act on the notification
+   * player. Failures close the notification.
+   */
+  public void play() {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          play(mNotificationPlayer);
+        } catch (Exception e) {
+          exitNotification();
+        }
+      }
+    });
+  }
+
+  private void play(Player player) throws Exception
   {
-    if (this.mMediaPlayer == null)
+    if (player == null || player.mediaPlayer == null)
       throw new Exception("MediaPlayer not found");
 
     try {
-      this.mMediaPlayer.start();
-      doTimerTask();
-      this.showNotification();
+      boolean wasPlaying = player.mediaPlayer.isPlaying();
+      long start = Metrics.now();
+      mMetrics.beginSection("start");
+      try {
+        player.mediaPlayer.start();
+        mMetrics.record("start", start);
+        player.moveTo(PlaybackState.PLAYING);
+      } finally {
+        mMetrics.endSection();
+      }
+      if (!wasPlaying)
+        probeFirstAudio(player, start);
+      if (player.anchorMode)
+        emitAnchor(player);
+      else
+        doTimerTask(player);
+      scheduleCrossfade(player);
+      if (player == mNotificationPlayer)
+        this.showNotification();
     } catch (Exception e) {
       throw e;
     }
   }
 
   @ReactMethod
-  public void pause(Callback callback) {
-    try {
-      this.pause();
-      callback.invoke(null, getInfo(mMediaPlayer));
-    } catch (Exception e) {
-      callback.invoke(errObj("pause", e.toString()));
-    }
+  public void pause(final Integer playerId, final Callback callback) {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        Player player = getPlayer(playerId);
+        try {
+          pause(player);
+          callback.invoke(null, getInfo(player.mediaPlayer));
+        } catch (Exception e) {
+          callback.invoke(errObj("pause", e.toString()));
+        }
+      }
+    });
+  }
+
+  public void pause() {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          pause(mNotificationPlayer);
+        } catch (Exception e) {
+          exitNotification();
+        }
+      }
+    });
   }
 
-  public void pause() throws Exception
+  private void pause(Player player) throws Exception
   {
-    if (this.mMediaPlayer == null)
+    if (player == null || player.mediaPlayer == null)
       throw new Exception("MediaPlayer not found");
 
-    stopTask();
+    stopTask(player);
+    endCrossfade(player);
     try {
-      mMediaPlayer.pause();
-      this.showNotification();
+      player.mediaPlayer.pause();
+      player.moveTo(PlaybackState.PAUSED);
+      emitAnchor(player);
+      if (player == mNotificationPlayer)
+        this.showNotification();
     } catch (Exception e) {
       throw e;
     }
   }
 
   @ReactMethod
-  public void stop(Callback callback) {
-    try {
-      this.stop();
-    } catch (Exception e) {
-      callback.invoke(errObj("stop", e.toString()));
-    }
+  public void stop(final Integer playerId, final Callback callback) {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          stop(getPlayer(playerId));
+          callback.invoke();
+        } catch (Exception e) {
+          callback.invoke(errObj("stop", e.toString()));
+        }
+      }
+    });
+  }
+
+  public void stop() {
+    mPlayerThread.post(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          stop(mNotificationPlayer);
+        } catch (Exception e) {
+          exitNotification();
+        }
+      }
+    });
   }
 
-  public void stop() throws Exception
+  private void stop(Player player) throws Exception
   {
-    if (mMediaPlayer == null)
+    if (player == null || player.mediaPlayer == null)
       throw new Exception("MediaPlayer not found");
 
-    stopTask();
+    stopTask(player);
+    endCrossfade(player);
     try {
-      mMediaPlayer.seekTo(0);
-      mMediaPlayer.pause();
+      requestSeek(player, 0, true, null);
+      player.mediaPlayer.pause();
+      player.moveTo(PlaybackState.PREPARED);
+      emitAnchor(player);
     } catch (Exception e) {
       throw e;
     }
   }
 
+  /**
+   * Safe from any thread: reads the tracked state, not the MediaPlayer.
+   */
   public boolean isPlaying(){
-    return mMediaPlayer != null ? mMediaPlayer.isPlaying() : false;
+    Player player = mNotificationPlayer;
+    return player != null && player.state == PlaybackState.PLAYING;
   }
 
   @Override
-  public void onBufferingUpdate(MediaPlayer player, int percent) {
+  public void onBufferingUpdate(MediaPlayer mediaPlayer, int percent) {
+    Player player = playerFor(mediaPlayer);
+    if (player == null)
+      return;
+
     WritableMap data = new WritableNativeMap();
     data.putString("message", "Status update for media stream buffering");
     data.putInt("percent", percent);
-    emitEvent("progress2", data);
+    emitEvent(player, "progress2", data);
   }
 
   @Override
-  public void onSeekComplete(MediaPlayer player) {
-    WritableMap data = new WritableNativeMap();
-    data.putString("message", "Seek operation completed");
-    emitEvent("seeked", data);
+  public void onSeekComplete(MediaPlayer mediaPlayer) {
+    Player player = playerFor(mediaPlayer);
+    if (player == null)
+      return;
+
+    if (player.seekStart != 0) {
+      mMetrics.record("seek", player.seekStart);
+      player.seekStart = 0;
+    }
+
+    if (player.pendingSeek >= 0) {
+      int target = player.pendingSeek;
+      player.pendingSeek = -1;
+      // A precise seek superseded in flight still gets its "seeked"
+      player.seekedDue |= player.seekPrecise;
+      startSeek(player, target, player.pendingSeekPrecise);
+      return;
+    }
+    player.seekInFlight = false;
+
+    if (!player.seekCallbacks.isEmpty()) {
+      List<Callback> callbacks = new ArrayList<>(player.seekCallbacks);
+      player.seekCallbacks.clear();
+      for (Callback callback : callbacks)
+        callback.invoke(null, getInfo(mediaPlayer));
+    }
+
+    // Scrubbing only moves the anchor, the drag ends with one precise seek
+    if (player.seekPrecise || player.seekedDue) {
+      player.seekedDue = false;
+      WritableMap data = new WritableNativeMap();
+      data.putString("message", "Seek operation completed");
+      emitEvent(player, "seeked", data);
+    }
+    emitAnchor(player);
+    scheduleCrossfade(player);
   }
 
   @Override
-  public void onCompletion(MediaPlayer player) {
+  public void onCompletion(MediaPlayer mediaPlayer) {
+    Player player = playerFor(mediaPlayer);
+    if (player == null)
+      return;
+
+    if (player.crossfade != null && mediaPlayer == player.crossfade.outgoing) {
+      endCrossfade(player);
+      scheduleCrossfade(player);
+      return;
+    }
+
+    if (mediaPlayer != player.mediaPlayer)
+      return;
+
+    boolean repeatOne = player.queue != null && player.queue.repeat() == PlayQueue.Repeat.ONE;
+    if (!player.looping && !repeatOne && player.nextPlayer != null) {
+      // The chained next player has already started (or will when ready)
+      if (player.nextReady)
+        advanceQueue(player);
+      else
+        player.startNextWhenReady = true;
+      return;
+    }
+
     WritableMap data = new WritableNativeMap();
-    mMediaPlayer.seekTo(0);
-    if (this.looping) {
-      mMediaPlayer.start();
+    requestSeek(player, 0, true, null);
+    if (player.looping || repeatOne) {
+      mediaPlayer.start();
       data.putString("message", "Media playback looped");
-      emitEvent("looped", data);
+      emitEvent(player, "looped", data);
     } else {
       data.putString("message", "Playback completed");
-      emitEvent("ended", data);
-      stopTask();
+      emitEvent(player, "ended", data);
+      player.moveTo(PlaybackState.PREPARED);
+      stopTask(player);
     }
+    emitAnchor(player);
   }
 
   @Override
-  public boolean onInfo(MediaPlayer player, int what, int extra) {
+  public boolean onInfo(MediaPlayer mediaPlayer, int what, int extra) {
+    Player player = playerFor(mediaPlayer);
+    if (player == null)
+      return false;
+
+    if (what == MediaPlayer.MEDIA_INFO_BUFFERING_START) {
+      mMetrics.increment("rebuffer");
+      player.rebufferStart = Metrics.now();
+    } else if (what == MediaPlayer.MEDIA_INFO_BUFFERING_END && player.rebufferStart != 0) {
+      mMetrics.record("rebuffer", player.rebufferStart);
+      player.rebufferStart = 0;
+    }
+
     WritableMap info = new WritableNativeMap();
     info.putInt("what", what);
     info.putInt("extra", extra);
@@ -412,102 +1733,211 @@ public class SoundPlayerModule extends ReactContextBaseJavaModule implements Med
     WritableMap data = new WritableNativeMap();
     data.putMap("info", info);
     data.putString("message", "Android MediaPlayer info");
-    emitEvent("info", data);
+    emitEvent(player, "info", data);
     return false;
   }
 
-  private void doTimerTask(){
-    mTimerTask = new TimerTask() {
+  /**
+   * Time to first audio: samples the position a few times after start(),
+   * backing off, as delayed player thread messages so nothing blocks. The
+   * probe that sees it move only bounds the time; on API 23+ the playback
+   * timestamp dates the first frame instead.
+   */
+  private void probeFirstAudio(final Player player, final long start) {
+    final MediaPlayer mediaPlayer = player.mediaPlayer;
+    final int startPosition = mediaPlayer.getCurrentPosition();
+    final Handler handler = mPlayerThread.getHandler();
+
+    handler.post(new Runnable() {
+      private int attempts = 0;
+      private long delay = FIRST_AUDIO_PROBE_MS;
+
+      @Override
       public void run() {
-        if (mMediaPlayer != null) {
-            emitEvent("progress", currentPosition(mMediaPlayer));
+        try {
+          if (player.mediaPlayer != mediaPlayer || !mediaPlayer.isPlaying())
+            return;
+          if (mediaPlayer.getCurrentPosition() != startPosition) {
+            mMetrics.record("firstAudio", start, firstAudioTime(mediaPlayer, start, startPosition));
+            return;
+          }
+        } catch (IllegalStateException e) {
+          return;
         }
-    }};
-    timer = new Timer();
-    timer.schedule(mTimerTask, 0, 100);  // 
+        if (++attempts < FIRST_AUDIO_PROBES) {
+          handler.postDelayed(this, delay);
+          delay *= 2;
+        }
+      }
+    });
   }
-    
-  private void stopTask(){
-    if(mTimerTask!=null)
-      mTimerTask.cancel();
 
-    if(timer!=null){
-      timer.cancel();
-      timer.purge();
+  /**
+   * When playback left startPosition, extrapolated back from the anchor of
+   * the playback timestamp; now if there is none.
+   */
+  private static long firstAudioTime(MediaPlayer mediaPlayer, long start, int startPosition) {
+    long now = Metrics.now();
+    if (Build.VERSION.SDK_INT < 23)
+      return now;
+
+    MediaTimestamp timestamp = mediaPlayer.getTimestamp();
+    if (timestamp == null || timestamp.getMediaClockRate() <= 0)
+      return now;
+    double playedNanos = (timestamp.getAnchorMediaTimeUs() - startPosition * 1000L) * 1000.0
+        / timestamp.getMediaClockRate();
+    long first = timestamp.getAnchorSytemNanoTime() - (long) playedNanos;
+    return Math.max(start, Math.min(now, first));
+  }
+
+  /**
+   * Clock of the "anchor" timestamps, for JS to measure its offset against.
+   * Answered right away, not through the player thread.
+   */
+  @ReactMethod
+  public void getClock(Callback callback) {
+    callback.invoke((double) SystemClock.elapsedRealtime());
+  }
+
+  @ReactMethod
+  public void getMetrics(Callback callback) {
+    callback.invoke(null, mMetrics.toWritableMap());
+  }
+
+  @ReactMethod
+  public void resetMetrics(Callback callback) {
+    mMetrics.reset();
+    callback.invoke();
+  }
+
+  private void doTimerTask(final Player player){
+    if (player.progressListener == null) {
+      final Runnable progress = new Runnable() {
+        public void run() {
+          MediaPlayer mediaPlayer = player.mediaPlayer;
+          if (mediaPlayer != null) {
+              emitEvent(player, "progress", currentPosition(mediaPlayer));
+          }
+      }};
+      final String key = PlayerThread.key(player.id, "progress");
+      // Ticks only hop over; a tick still queued behind slow commands is replaced
+      player.progressListener = new Ticker.Listener() {
+        public void onTick() {
+          mPlayerThread.post(key, progress);
+        }
+      };
     }
-  } 
+    Ticker.get().add(player.progressListener);
+  }
 
-  private WritableMap currentPosition(MediaPlayer mediaPlayer){
-    WritableMap data   = new WritableNativeMap();
-    data.putDouble("position", mediaPlayer.getCurrentPosition() );
-    data.putDouble("duration", mediaPlayer.getDuration() );
-    return data;
+  private void stopTask(Player player){
+    if (player.progressListener != null)
+      Ticker.get().remove(player.progressListener);
   }
 
-  private void showNotification(){
-    remoteViews = new RemoteViews(context.getPackageName(), R.layout.layout_notification_player);
-    remoteViews.setImageViewResource(R.id.remoteview_notification_icon, R.mipmap.ic_launcher);
+  /**
+   * Progress event rate shared by all players and recorders. backgroundInterval
+   * applies while the app is hidden, 0 stops progress events there.
+   */
+  @ReactMethod
+  public void setProgressInterval(ReadableMap options, Callback callback) {
+    long interval = options.hasKey("interval") ? options.getInt("interval") : -1;
+    long backgroundInterval = options.hasKey("backgroundInterval") ? options.getInt("backgroundInterval") : -1;
+    Ticker.get().setInterval(interval, backgroundInterval);
+    callback.invoke();
+  }
 
-    if (mMediaMeta.hasKey("title"))
-      remoteViews.setTextViewText(R.id.remoteview_notification_headline, mMediaMeta.getString("title"));
+  @Override
+  public void onHostResume() {
+    Ticker.get().setForeground(true);
+  }
 
-    if (mMediaMeta.hasKey("singer") && !mMediaMeta.isNull("singer"))
-      remoteViews.setTextViewText(R.id.remoteview_notification_short_message, mMediaMeta.getString("singer"));
+  @Override
+  public void onHostPause() {
+    Ticker.get().setForeground(false);
+  }
 
-    if (mMediaMeta.hasKey("image_url") && !mMediaMeta.isNull("image_url")){
-      try{
-        URL url=new URL(mMediaMeta.getString("image_url"));
-        Bitmap bmp = BitmapFactory.decodeStream(url.openConnection().getInputStream());
-        remoteViews.setImageViewBitmap(R.id.remoteview_notification_icon, bmp); 
-      }catch(Exception e){}
-    }
+  @Override
+  public void onHostDestroy() {
+  }
 
-    if (mMediaPlayer.isPlaying()) {
-      remoteViews.setImageViewResource(R.id.btn_notification_play, android.R.drawable.ic_media_pause); 
-    }else{
-      remoteViews.setImageViewResource(R.id.btn_notification_play, android.R.drawable.ic_media_play);
-    }
+  @Override
+  public void onCatalystInstanceDestroy() {
+    mPlayerThread.quit(new Runnable() {
+      @Override
+      public void run() {
+        // JS is going away, release without events or callbacks
+        for (Player player : mPlayers.values()) {
+          stopTask(player);
+          endCrossfade(player);
+          for (MediaPlayer mediaPlayer : new MediaPlayer[] { player.mediaPlayer, player.preparingPlayer, player.nextPlayer }) {
+            if (mediaPlayer != null)
+              mediaPlayer.release();
+          }
+        }
+        mPlayers.clear();
+        mWarmPool.clear();
+        mNotificationPlayer = null;
+        mNotification.cancel();
+        if (mCacheProxy != null) {
+          mCacheProxy.shutdown();
+          mCacheProxy = null;
+        }
+      }
+    });
+    mWorker.shutdown();
+    mArtworkLoader.shutdown();
+    this.context.unregisterComponentCallbacks(mMemoryCallbacks);
+  }
 
-    // build notification
-    notifyBuilder =  
-      new NotificationCompat.Builder(context)
-          .setSmallIcon(android.R.drawable.ic_lock_silent_mode_off)
-          .setContentTitle("Content Title")
-          .setContentText("Content Text")
-          .setContent(remoteViews)
-          .setPriority( NotificationCompat.PRIORITY_MIN);
+  /**
+   * In anchor mode position is only reported when playback changes course; JS
+   * extrapolates from position + rate in between instead of polling.
+   */
+  private void emitAnchor(Player player) {
+    MediaPlayer mediaPlayer = player.mediaPlayer;
+    if (!player.anchorMode || mediaPlayer == null)
+      return;
 
-    Notification mNotification = notifyBuilder.build();
+    boolean playing = mediaPlayer.isPlaying();
+    emitEvent(player, "anchor", EventPayloads.anchor(WritableMaps.WRITER, mediaPlayer.getCurrentPosition(),
+        mediaPlayer.getDuration(), SystemClock.elapsedRealtime(), player.rate, playing));
+  }
 
-    // set big content view for newer androids
-    if (android.os.Build.VERSION.SDK_INT >= 16) {  
-      mNotification.bigContentView = remoteViews;
-    }
-    
-    remoteViews.setOnClickPendingIntent(R.id.btn_notification_previous, makePendingIntent(BROADCAST_PLAYBACK_PREVIOUS));
-    remoteViews.setOnClickPendingIntent(R.id.btn_notification_play, makePendingIntent(BROADCAST_PLAYBACK_PLAY));
-    remoteViews.setOnClickPendingIntent(R.id.btn_notification_next, makePendingIntent(BROADCAST_PLAYBACK_NEXT));
-    remoteViews.setOnClickPendingIntent(R.id.btn_notification_stop, makePendingIntent(BROADCAST_PLAYBACK_STOP));
-    remoteViews.setOnClickPendingIntent(R.id.btn_notification_stop, makePendingIntent(BROADCAST_PLAYBACK_EXIT));
-    mNotificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);  
-    mNotificationManager.notify(NOTIFICATION_ID, mNotification);  
+  private WritableMap currentPosition(MediaPlayer mediaPlayer){
+    return EventPayloads.position(WritableMaps.WRITER, mediaPlayer.getCurrentPosition(), mediaPlayer.getDuration());
   }
 
-  private PendingIntent makePendingIntent(String broadcast) {
-    Intent intent = new Intent(broadcast);
-    return PendingIntent.getBroadcast(this.context, 0, intent, 0);
+  private void showNotification(){
+    Player player = mNotificationPlayer;
+    if (player == null || player.mediaPlayer == null)
+      return;
+    WritableMap mMediaMeta = player.meta;
+    String title = null, singer = null;
+    Bitmap bmp = null;
+
+    if (mMediaMeta.hasKey("title") && !mMediaMeta.isNull("title"))
+      title = mMediaMeta.getString("title");
+
+    if (mMediaMeta.hasKey("singer") && !mMediaMeta.isNull("singer"))
+      singer = mMediaMeta.getString("singer");
+
+    if (mMediaMeta.hasKey("image_url") && !mMediaMeta.isNull("image_url")){
+      String url = mMediaMeta.getString("image_url");
+      bmp = mArtworkLoader.get(url);
+      if (bmp == null)
+        mArtworkLoader.load(url, mArtworkListener);
+    }
+
+    mNotification.update(title, singer, player.isPlaying(), bmp);
   }
 
   public void clearNotification() {
-    if (mNotificationManager != null)
-      mNotificationManager.cancel(NOTIFICATION_ID);
+    mNotification.cancel();
   }
 
   public void exitNotification() {
-    mNotificationManager.cancelAll();
-    clearNotification();
-    notifyBuilder = null;
-    mNotificationManager = null;
+    mNotification.cancel();
   }
 
   private void registerReceiverRemote(IntentFilter filter){
@@ -4,15 +4,20 @@ import android.os.*;
 import android.net.Uri;
 import android.util.Log;
 import android.os.Environment;
+import android.util.Base64;
 import android.webkit.URLUtil;
 import android.media.MediaRecorder;
+import android.annotation.TargetApi;
 import android.content.ContextWrapper;
 import android.support.annotation.Nullable;
 
 import com.facebook.react.bridge.Callback;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.WritableNativeMap;
@@ -21,30 +26,94 @@ import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.Map;
-import java.util.Timer;
+import java.util.List;
 import java.lang.Thread;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Objects;
 import java.io.IOException;
 import java.util.Map.Entry;
-import java.util.TimerTask;
 import java.net.URISyntaxException;
 
 public class SoundRecorderModule extends ReactContextBaseJavaModule implements
-      MediaRecorder.OnInfoListener, MediaRecorder.OnErrorListener {
+      MediaRecorder.OnInfoListener, MediaRecorder.OnErrorListener, LifecycleEventListener {
   private static final String LOG_TAG = "SoundRecorderModule";
+  private static final int DEFAULT_PCM_BUFFER_MS = 2000;
+  private static final int DEFAULT_METER_WINDOW_MS = 50;
+  private static final int DEFAULT_METER_INTERVAL_MS = 100;
+  // Chunks and speech are drained this often, well within bufferMillis
+  private static final long CAPTURE_EVENT_INTERVAL_MS = 100;
 
   private static MediaRecorder mMediaRecorder;
   private ReactApplicationContext context;
   private Integer currentRecorderId;
   private long startHTime = 0L;
-  private TimerTask mTimerTask;
-  private Timer timer;
+  private final Metrics mMetrics = new Metrics("SoundRecorder.");
+  private PcmCapture mCapture;
+  private final List<PcmSink> mSinks = new ArrayList<>();
+  private final List<String> mSinkPaths = new ArrayList<>();
+  private PcmRingBuffer.Cursor mChunkCursor;
+  private byte[] mChunkBuffer;
+  // Read by the capture event thread
+  private volatile LevelMeter mLevelMeter;
+  private volatile long mMeterInterval = DEFAULT_METER_INTERVAL_MS;
+  private long mLastMeter = 0;
+  private SegmentPlan mSegmentPlan; // MediaRecorder segments, PCM ones rotate in WavWriter
+  private int mSegmentIndex;
+  private long mSegmentStart;
+  private boolean mNextSegmentSet;
+  private int mPrerollMillis = 0;
+  private boolean mArmed = false;
+  private volatile VoiceActivity mVoiceActivity;
+  // Guarded by this, shared by record() and the capture event thread
+  private int mEmittedTransitions = 0;
+  private long mRecordStartSeq = 0;
+  private long mSpeechStartMillis = 0;
+  // Meter, chunk and speech events follow the capture, not the progress
+  // rate, which slows down in the background and may stop altogether
+  private HandlerThread mEventThread;
+  private Handler mEventHandler;
+  private volatile long mEventInterval;
+  private volatile boolean mEventsRunning = false;
+  private final Runnable mCaptureEvents = new Runnable() {
+    @Override
+    public void run() {
+      long started = SystemClock.uptimeMillis();
+      emitChunks();
+      emitMeter(started);
+      emitSpeech();
+      if (mEventsRunning)
+        mEventHandler.postAtTime(this, started + mEventInterval);
+    }
+  };
+  private final Ticker.Listener mProgressListener = new Ticker.Listener() {
+    public void onTick() {
+      if (mMediaRecorder != null || mCapture != null) {
+        double currentTime  = (float)(SystemClock.uptimeMillis() - startHTime);
+        emitEvent("progress", EventPayloads.recordProgress(WritableMaps.WRITER, currentTime));
+      }
+    }
+  };
+
+  private final PcmCapture.ErrorListener mCaptureErrorListener = new PcmCapture.ErrorListener() {
+    @Override
+    public void onCaptureError(final PcmCapture capture, final int code) {
+      // Same thread as the React methods, so it can't interleave with stop()
+      context.runOnNativeModulesQueueThread(new Runnable() {
+        @Override
+        public void run() {
+          onCaptureError(capture, code);
+        }
+      });
+    }
+  };
 
   public SoundRecorderModule(ReactApplicationContext reactContext) {
     super(reactContext);
     this.context = reactContext;
+    reactContext.addLifecycleEventListener(this);
   }
 
   @Override
@@ -72,50 +141,41 @@ public class SoundRecorderModule extends ReactContextBaseJavaModule implements
       stackTraceString += e.toString() + "\n";
     }
 
+    mMetrics.increment("error." + code);
+
     err.putString("err", code);
     err.putString("message", message);
     err.putString("stackTrace", stackTraceString);
     return err;
   }
 
-  private int formatFromName(String name) {
-    switch (name) {
-      case "aac":
+  private int outputFormat(RecordingFormat.Container container) {
+    switch (container) {
+      case AAC_ADTS:
         return MediaRecorder.OutputFormat.AAC_ADTS;
-      case "mp4":
+      case MPEG_4:
         return MediaRecorder.OutputFormat.MPEG_4;
-      case "webm":
-      case "ogg":
+      case WEBM:
         return MediaRecorder.OutputFormat.WEBM;
-      case "amr":
+      case AMR_WB:
         return MediaRecorder.OutputFormat.AMR_WB;
       default:
         return MediaRecorder.OutputFormat.DEFAULT;
     }
   }
-  private int formatFromPath(String path) {
-    String ext = path.substring(path.lastIndexOf('.') + 1);
-    return formatFromName(ext);
-  }
 
-  private int encoderFromName(String name) {
-    switch (name) {
-      case "aac":
-      case "mp4":
+  private int audioEncoder(RecordingFormat.Encoder encoder) {
+    switch (encoder) {
+      case HE_AAC:
         return MediaRecorder.AudioEncoder.HE_AAC;
-      case "webm":
-      case "ogg":
+      case VORBIS:
         return MediaRecorder.AudioEncoder.VORBIS;
-      case "amr":
+      case AMR_WB:
         return MediaRecorder.AudioEncoder.AMR_WB;
       default:
         return MediaRecorder.AudioEncoder.DEFAULT;
     }
   }
-  private int encoderFromPath(String path) {
-    String ext = path.substring(path.lastIndexOf('.') + 1);
-    return encoderFromName(ext);
-  }
 
   private Uri uriFromPath(String path) {
     Uri uri = null;
@@ -135,10 +195,18 @@ public class SoundRecorderModule extends ReactContextBaseJavaModule implements
 
   @ReactMethod
   public void destroy(Callback callback) {
+    if (mCapture != null) {
+      releasePcm();
+      WritableMap data = new WritableNativeMap();
+      data.putString("message", "Destroyed recorder");
+      emitEvent("destroy", data);
+    }
+
     if (mMediaRecorder != null) {
       mMediaRecorder.reset();
       mMediaRecorder.release();
       mMediaRecorder =  null;
+      mSegmentPlan = null;
       WritableMap data = new WritableNativeMap();
       data.putString("message", "Destroyed recorder");
       emitEvent("destroy", data);
@@ -164,19 +232,18 @@ public class SoundRecorderModule extends ReactContextBaseJavaModule implements
 
     Uri uri = uriFromPath(path);
     destroy(null);
-    mMediaRecorder =  new MediaRecorder();
 
-    int format = formatFromPath(path);
-    int encoder = encoderFromPath(path);
+    int format = outputFormat(RecordingFormat.Container.fromPath(path));
+    int encoder = audioEncoder(RecordingFormat.Encoder.fromPath(path));
     int bitrate = 128000;
     int channels = 2;
     int sampleRate = 44100;
 
     if (options.hasKey("format")) {
-      format = formatFromName(options.getString("format"));
+      format = outputFormat(RecordingFormat.Container.fromName(options.getString("format")));
     }
     if (options.hasKey("encoder")) {
-      encoder = encoderFromName(options.getString("encoder"));
+      encoder = audioEncoder(RecordingFormat.Encoder.fromName(options.getString("encoder")));
     }
     if (options.hasKey("bitrate")) {
       bitrate = options.getInt("bitrate");
@@ -188,7 +255,30 @@ public class SoundRecorderModule extends ReactContextBaseJavaModule implements
       sampleRate = options.getInt("sampleRate");
     }
 
+    SegmentPlan plan = segmentPlan(uri.getPath(), options);
+    boolean pcm = options.hasKey("mode") && "pcm".equals(options.getString("mode"));
+    boolean preroll = options.hasKey("preroll") && options.getInt("preroll") > 0;
+    boolean vad = voiceActivityEnabled(options);
+    if (plan != null && !pcm && (preroll || vad || Build.VERSION.SDK_INT < Build.VERSION_CODES.O)) {
+      // No setNextOutputFile, rotating MediaRecorder would drop audio
+      // between files; segment the PCM pipeline instead
+      pcm = true;
+    }
+    if (preroll || vad) {
+      // MediaRecorder can't hold audio from before start() and doesn't
+      // expose the signal to detect speech in
+      pcm = true;
+    }
 
+    if (pcm) {
+      // PCM segments are always WAV, whatever extension the path asked for
+      if (plan != null)
+        plan = plan.withExtension("wav");
+      preparePcm(uri, sampleRate, channels, bitrate, plan, options, callback);
+      return;
+    }
+
+    mMediaRecorder =  new MediaRecorder();
     mMediaRecorder.reset();
     mMediaRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
     mMediaRecorder.setOutputFormat(format);
@@ -196,32 +286,349 @@ public class SoundRecorderModule extends ReactContextBaseJavaModule implements
     mMediaRecorder.setAudioEncodingBitRate(bitrate);
     mMediaRecorder.setAudioChannels(channels);
     mMediaRecorder.setAudioSamplingRate(sampleRate);
-    mMediaRecorder.setOutputFile(uri.getPath());
+    if (plan != null) {
+      // Rotation is driven by onInfo: the size limit's warning sets the next
+      // file, time limits become sizes through the bitrate
+      mMediaRecorder.setOutputFile(plan.path(0));
+      mMediaRecorder.setMaxFileSize(plan.byteLimit(bitrate / 8, 1));
+      mSegmentPlan = plan;
+      mSegmentIndex = 0;
+      mNextSegmentSet = false;
+    } else {
+      mMediaRecorder.setOutputFile(uri.getPath());
+    }
     mMediaRecorder.setOnErrorListener(this);
     mMediaRecorder.setOnInfoListener(this);
 
+    long start = Metrics.now();
+    mMetrics.beginSection("prepare");
     try {
       mMediaRecorder.prepare();
+      mMetrics.record("recorderPrepare", start);
       WritableMap data   = new WritableNativeMap();
-      data.putString("filepath",  uri.getPath());
+      data.putString("filepath",  plan != null ? plan.path(0) : uri.getPath());
       callback.invoke(null, data);
     } catch (IOException e) {
       WritableMap data = new WritableNativeMap();
       data.putString("message", e.toString());
       emitEvent("preparefail", data);
       callback.invoke(errObj("preparefail", e.toString()));
+    } finally {
+      mMetrics.endSection();
+    }
+  }
+
+  /**
+   * Segmented mode from the segmentDuration (ms) and segmentSize (bytes)
+   * options, or null when neither is set.
+   */
+  private SegmentPlan segmentPlan(String path, ReadableMap options) {
+    long duration = options.hasKey("segmentDuration") ? (long) options.getDouble("segmentDuration") : 0;
+    long size = options.hasKey("segmentSize") ? (long) options.getDouble("segmentSize") : 0;
+    SegmentPlan plan = new SegmentPlan(path, duration, size);
+    return plan.isEnabled() ? plan : null;
+  }
+
+  /**
+   * Raw capture mode: AudioRecord feeds a ring of direct buffers, a WAV writer
+   * and (with emitChunks) base64 "chunk" events read from it independently.
+   * .m4a/.mp4/.aac paths are encoded by an AacEncoder instead, and the
+   * outputs option adds more files fed from the same capture.
+   */
+  private void preparePcm(Uri uri, int sampleRate, int channels, int bitrate, SegmentPlan plan,
+      ReadableMap options, Callback callback) {
+    int bufferMillis = DEFAULT_PCM_BUFFER_MS;
+    if (options.hasKey("bufferMillis")) {
+      bufferMillis = options.getInt("bufferMillis");
+    }
+    // The ring keeps the pre-roll on top of the outputs' own headroom, all
+    // allocated here so arm() only starts the microphone
+    mPrerollMillis = options.hasKey("preroll") ? Math.max(0, options.getInt("preroll")) : 0;
+    bufferMillis += mPrerollMillis;
+    AacFormat.Profile profile = options.hasKey("profile")
+        ? AacFormat.Profile.fromName(options.getString("profile")) : AacFormat.Profile.LC;
+
+    try {
+      mCapture = new PcmCapture(sampleRate, channels, bufferMillis);
+      mCapture.setErrorListener(mCaptureErrorListener);
+      if (voiceActivityEnabled(options)) {
+        double threshold = options.hasKey("vadThreshold")
+            ? options.getDouble("vadThreshold") : VoiceActivity.DEFAULT_THRESHOLD_DB;
+        int hangover = options.hasKey("vadHangover")
+            ? options.getInt("vadHangover") : VoiceActivity.DEFAULT_HANGOVER_MS;
+        VoiceActivity.Silence silence = options.hasKey("silence")
+            ? VoiceActivity.Silence.fromName(options.getString("silence")) : VoiceActivity.Silence.KEEP;
+        mVoiceActivity = new VoiceActivity(sampleRate, channels, threshold, hangover,
+            mCapture.ring().capacity(), silence);
+        mCapture.addListener(mVoiceActivity);
+      }
+      addSink(uri.getPath(), plan, profile, bitrate);
+      if (options.hasKey("outputs")) {
+        ReadableArray outputs = options.getArray("outputs");
+        for (int i = 0; i < outputs.size(); i++)
+          addSink(uriFromPath(outputs.getString(i)).getPath(), null, profile, bitrate);
+      }
+    } catch (Exception e) {
+      releasePcm();
+      WritableMap data = new WritableNativeMap();
+      data.putString("message", e.toString());
+      emitEvent("preparefail", data);
+      callback.invoke(errObj("preparefail", e.toString()));
+      return;
+    }
+
+    if (options.hasKey("metering") && options.getBoolean("metering")) {
+      int windowMillis = options.hasKey("meterWindow") ? options.getInt("meterWindow") : DEFAULT_METER_WINDOW_MS;
+      mMeterInterval = options.hasKey("meterInterval") ? options.getInt("meterInterval") : DEFAULT_METER_INTERVAL_MS;
+      mLevelMeter = new LevelMeter(sampleRate, channels, windowMillis);
+      mCapture.addListener(mLevelMeter);
+    }
+
+    if (options.hasKey("emitChunks") && options.getBoolean("emitChunks")) {
+      mChunkCursor = mCapture.ring().newCursor();
+      mChunkBuffer = new byte[mCapture.ring().slotBytes() * mCapture.ring().capacity()];
+    }
+
+    WritableMap data   = new WritableNativeMap();
+    data.putString("filepath",  plan != null ? plan.path(0) : uri.getPath());
+    callback.invoke(null, data);
+  }
+
+  /**
+   * Adds an output reading the capture ring through its own cursor: AAC for
+   * encoded extensions, WAV otherwise and for segmented recordings.
+   */
+  private void addSink(String path, SegmentPlan plan, AacFormat.Profile profile, int bitrate) throws IOException {
+    PcmSink sink;
+    if (plan == null && AacFormat.Output.fromPath(path) != null) {
+      sink = new AacEncoder(mCapture, new File(path), profile, bitrate, mMetrics, mVoiceActivity);
+    } else {
+      final int byteRate = mCapture.byteRate();
+      sink = new WavWriter(mCapture, new File(path), plan, new WavWriter.SegmentListener() {
+        @Override
+        public void onSegment(File file, int index, long dataBytes) {
+          emitEvent("segment", EventPayloads.segment(WritableMaps.WRITER, file.getPath(), index,
+              file.length(), dataBytes * 1000.0 / byteRate));
+        }
+      }, mVoiceActivity);
+    }
+    mSinks.add(sink);
+    mSinkPaths.add(plan != null ? plan.path(0) : path);
+  }
+
+  /**
+   * Finishes every sink, throwing the first failure after all of them closed.
+   */
+  private void finishSinks() throws IOException {
+    IOException error = null;
+    for (PcmSink sink : mSinks) {
+      try {
+        sink.finish();
+      } catch (IOException e) {
+        if (error == null)
+          error = e;
+      }
+    }
+    if (error != null)
+      throw error;
+  }
+
+  /**
+   * Backpressure of each output: slots dropped and the most it fell behind,
+   * in ms of audio.
+   */
+  private WritableArray sinkStats() {
+    WritableArray outputs = Arguments.createArray();
+    for (int i = 0; i < mSinks.size(); i++) {
+      PcmSink sink = mSinks.get(i);
+      WritableMap stats = Arguments.createMap();
+      stats.putString("filepath", mSinkPaths.get(i));
+      stats.putDouble("dropped", sink.dropped());
+      stats.putDouble("maxLag", sink.maxLag() * PcmCapture.SLOT_MILLIS);
+      outputs.pushMap(stats);
+    }
+    return outputs;
+  }
+
+  private synchronized void releasePcm() {
+    if (mCapture != null) {
+      mCapture.release();
+      mCapture = null;
+    }
+    try {
+      finishSinks();
+    } catch (IOException e) {
+      Log.e(LOG_TAG, e.toString());
+    }
+    mSinks.clear();
+    mSinkPaths.clear();
+    mArmed = false;
+    mChunkCursor = null;
+    mChunkBuffer = null;
+    mLevelMeter = null;
+    mVoiceActivity = null;
+  }
+
+  /**
+   * Speech detection is on with the vad option, or whenever silence is
+   * paused or trimmed.
+   */
+  private boolean voiceActivityEnabled(ReadableMap options) {
+    if (options.hasKey("vad") && options.getBoolean("vad"))
+      return true;
+    return options.hasKey("silence")
+        && VoiceActivity.Silence.fromName(options.getString("silence")) != VoiceActivity.Silence.KEEP;
+  }
+
+  /**
+   * Emits "speechStart"/"speechEnd" for each of the detector's transitions
+   * since the last tick, positioned in ms of capture since record().
+   * Transitions the detector no longer holds are skipped in whole pairs.
+   */
+  private synchronized void emitSpeech() {
+    VoiceActivity vad = mVoiceActivity;
+    if (vad == null)
+      return;
+
+    int transitions = vad.transitions();
+    int oldest = vad.oldestTransition();
+    if (mEmittedTransitions < oldest)
+      mEmittedTransitions = (oldest + 1) & ~1;
+
+    while (mEmittedTransitions < transitions) {
+      long seq = vad.transitionSeq(mEmittedTransitions);
+      if (seq < 0) {
+        mEmittedTransitions = (vad.oldestTransition() + 1) & ~1;
+        continue;
+      }
+      long millis = Math.max(0, seq - mRecordStartSeq) * PcmCapture.SLOT_MILLIS;
+      if (mEmittedTransitions % 2 == 0) {
+        mSpeechStartMillis = millis;
+        emitEvent("speechStart", EventPayloads.speechStart(WritableMaps.WRITER, millis));
+      } else {
+        emitEvent("speechEnd", EventPayloads.speechEnd(WritableMaps.WRITER, millis,
+            Math.max(0, millis - mSpeechStartMillis)));
+      }
+      mEmittedTransitions++;
+    }
+  }
+
+  /**
+   * Emits a "meter" event at most every meterInterval ms.
+   */
+  private void emitMeter(long now) {
+    LevelMeter meter = mLevelMeter;
+    if (meter == null)
+      return;
+
+    if (now - mLastMeter < mMeterInterval)
+      return;
+    mLastMeter = now;
+
+    emitEvent("meter", EventPayloads.meter(WritableMaps.WRITER, meter.rmsDb(), meter.readPeakDb()));
+  }
+
+  /**
+   * Emits everything the chunk cursor has not seen yet as one "chunk" event.
+   */
+  private synchronized void emitChunks() {
+    PcmRingBuffer.Cursor cursor = mChunkCursor;
+    byte[] buffer = mChunkBuffer;
+    if (cursor == null || buffer == null)
+      return;
+
+    int length = 0;
+    long seq;
+    while ((seq = cursor.next()) >= 0) {
+      ByteBuffer view = cursor.view(seq);
+      int bytes = Math.min(view.remaining(), buffer.length - length);
+      view.get(buffer, length, bytes);
+      if (cursor.advance(seq))
+        length += bytes;
+      if (length == buffer.length)
+        break;
+    }
+
+    if (length == 0)
+      return;
+
+    WritableMap data = new WritableNativeMap();
+    data.putString("data", Base64.encodeToString(buffer, 0, length, Base64.NO_WRAP));
+    data.putInt("sampleRate", mCapture.sampleRate);
+    data.putInt("channels", mCapture.channels);
+    emitEvent("chunk", data);
+  }
+
+  /**
+   * Starts the microphone into the ring without recording, so record() can
+   * begin with the last preroll ms before it was called. PCM mode only.
+   */
+  @ReactMethod
+  public void arm(Callback callback) {
+    if (mCapture == null) {
+      callback.invoke(errObj("notfound", "Armed capture needs a recorder prepared with preroll or mode pcm."));
+      return;
+    }
+
+    long start = Metrics.now();
+    try {
+      mCapture.start();
+    } catch (IllegalStateException e) {
+      releasePcm();
+      callback.invoke(errObj("startfail", e.toString()));
+      return;
     }
+    mMetrics.record("recorderArm", start);
+    mArmed = true;
+    callback.invoke();
   }
 
   @ReactMethod
   public void record(Callback callback) {
+    if (mCapture != null) {
+      // Outputs are positioned before the capture starts so a cold start
+      // loses no slot; an armed capture hands them its pre-roll
+      int backSlots = mArmed ? mPrerollMillis / PcmCapture.SLOT_MILLIS : 0;
+      synchronized (this) {
+        mRecordStartSeq = Math.max(0, mCapture.ring().writeSequence() - backSlots);
+        if (mVoiceActivity != null) {
+          // Speech already going on when recording starts is reported as started
+          mEmittedTransitions = mVoiceActivity.transitions() & ~1;
+        }
+        if (mChunkCursor != null)
+          mChunkCursor = mCapture.ring().newCursor(backSlots);
+      }
+      for (PcmSink sink : mSinks)
+        sink.start(backSlots);
+      long start = Metrics.now();
+      try {
+        mCapture.start();
+      } catch (IllegalStateException e) {
+        releasePcm();
+        callback.invoke(errObj("startfail", e.toString()));
+        return;
+      }
+      mMetrics.record("recorderStart", start);
+      doTimerTask();
+      callback.invoke();
+      return;
+    }
+
     if (mMediaRecorder == null) {
       callback.invoke(errObj("notfound", "MediaRecorder not found."));
       return;
     }
 
     try {
-      mMediaRecorder.start();
+      long start = Metrics.now();
+      mMetrics.beginSection("start");
+      try {
+        mMediaRecorder.start();
+        mMetrics.record("recorderStart", start);
+        mSegmentStart = SystemClock.uptimeMillis();
+      } finally {
+        mMetrics.endSection();
+      }
       doTimerTask();
       callback.invoke();
     } catch (Exception e) {
@@ -231,6 +638,24 @@ public class SoundRecorderModule extends ReactContextBaseJavaModule implements
 
   @ReactMethod
   public void stop(Callback callback) {
+    if (mCapture != null) {
+      stopTask();
+      mCapture.stop();
+      emitChunks();
+      emitSpeech();
+      try {
+        finishSinks();
+        callback.invoke();
+        WritableMap data = new WritableNativeMap();
+        data.putDouble("dropped", mSinks.get(0).dropped());
+        data.putArray("outputs", sinkStats());
+        emitEvent("stop", data);
+      } catch (IOException e) {
+        callback.invoke(errObj("stopfail", e.toString()));
+      }
+      return;
+    }
+
     if (mMediaRecorder == null) {
       callback.invoke(errObj("notfound", "MediaRecorder not found."));
       return;
@@ -238,6 +663,8 @@ public class SoundRecorderModule extends ReactContextBaseJavaModule implements
 
     try {
       mMediaRecorder.stop();
+      if (mSegmentPlan != null)
+        emitSegment();
       callback.invoke();
       WritableMap data = new WritableNativeMap();
       emitEvent("stop", data);
@@ -247,8 +674,42 @@ public class SoundRecorderModule extends ReactContextBaseJavaModule implements
     stopTask();
   }
 
+  /**
+   * The capture stopped on a read error: close the outputs so what was
+   * recorded stays playable, report it and release like a MediaRecorder error.
+   */
+  private void onCaptureError(PcmCapture capture, int code) {
+    if (capture != mCapture)
+      return;
+
+    mMetrics.increment("error");
+    stopTask();
+    emitChunks();
+    emitSpeech();
+    try {
+      finishSinks();
+    } catch (IOException e) {
+      Log.e(LOG_TAG, e.toString());
+    }
+    WritableMap stop = new WritableNativeMap();
+    stop.putArray("outputs", sinkStats());
+    emitEvent("stop", stop);
+
+    WritableMap err = new WritableNativeMap();
+    err.putInt("what", code);
+    err.putInt("extra", 0);
+
+    WritableMap data = new WritableNativeMap();
+    data.putMap("err", err);
+    data.putString("message", "Android AudioRecord error");
+    emitEvent("error", data);
+
+    destroy();
+  }
+
   @Override
   public void onError(MediaRecorder recorder, int what, int extra) {
+    mMetrics.increment("error");
     // TODO: translate these codes into english
     WritableMap err = new WritableNativeMap();
     err.putInt("what", what);
@@ -262,8 +723,44 @@ public class SoundRecorderModule extends ReactContextBaseJavaModule implements
     destroy();
   }
 
+  /**
+   * Reports the current MediaRecorder segment as finished.
+   */
+  private void emitSegment() {
+    String path = mSegmentPlan.path(mSegmentIndex);
+    long now = SystemClock.uptimeMillis();
+    emitEvent("segment", EventPayloads.segment(WritableMaps.WRITER, path, mSegmentIndex,
+        new File(path).length(), now - mSegmentStart));
+    mSegmentIndex++;
+    mSegmentStart = now;
+  }
+
+  @TargetApi(Build.VERSION_CODES.O)
+  private void setNextSegment(MediaRecorder recorder) {
+    try {
+      recorder.setNextOutputFile(new File(mSegmentPlan.path(mSegmentIndex + 1)));
+      mNextSegmentSet = true;
+    } catch (IOException e) {
+      // The recorder stops at the size limit and reports it through "info"
+      Log.e(LOG_TAG, e.toString());
+    }
+  }
+
   @Override
   public void onInfo(MediaRecorder recorder, int what, int extra) {
+    if (mSegmentPlan != null && recorder == mMediaRecorder) {
+      if (what == MediaRecorder.MEDIA_RECORDER_INFO_MAX_FILESIZE_APPROACHING) {
+        if (!mNextSegmentSet)
+          setNextSegment(recorder);
+        return;
+      }
+      if (what == MediaRecorder.MEDIA_RECORDER_INFO_NEXT_OUTPUT_FILE_STARTED) {
+        mNextSegmentSet = false;
+        emitSegment();
+        return;
+      }
+    }
+
     // TODO: translate these codes into english
     WritableMap info = new WritableNativeMap();
     info.putInt("what", what);
@@ -278,27 +775,86 @@ public class SoundRecorderModule extends ReactContextBaseJavaModule implements
 
   public void doTimerTask(){
     startHTime = SystemClock.uptimeMillis();
-    mTimerTask = new TimerTask() {
-    public void run() {
-      if (mMediaRecorder != null) {
-        double currentTime  = (float)(SystemClock.uptimeMillis() - startHTime);
-        WritableMap data   = new WritableNativeMap();
-        data.putDouble("position", currentTime);
-        emitEvent("progress", data);
-      }
-    }};
-
-    timer = new Timer();
-    timer.schedule(mTimerTask, 0, 100);  // 
+    Ticker.get().add(mProgressListener);
+    startCaptureEvents();
   }
 
   public void stopTask(){
-    if(mTimerTask != null)
-      mTimerTask.cancel();
+    Ticker.get().remove(mProgressListener);
+    stopCaptureEvents();
+  }
+
+  /**
+   * Drives meter, chunk and speech events of a PCM recording from a thread
+   * of their own, every meterInterval or sooner when chunks or speech
+   * events have to be drained before the ring wraps.
+   */
+  private void startCaptureEvents() {
+    boolean drain = mChunkCursor != null || mVoiceActivity != null;
+    if (mLevelMeter == null && !drain)
+      return;
+
+    long interval = drain ? CAPTURE_EVENT_INTERVAL_MS : Long.MAX_VALUE;
+    if (mLevelMeter != null)
+      interval = Math.min(interval, Math.max(1, mMeterInterval));
+
+    if (mEventThread == null) {
+      mEventThread = new HandlerThread("SoundManagementCaptureEvents");
+      mEventThread.start();
+      mEventHandler = new Handler(mEventThread.getLooper());
+    }
+    mEventInterval = interval;
+    mLastMeter = 0;
+    mEventsRunning = true;
+    mEventHandler.removeCallbacks(mCaptureEvents);
+    mEventHandler.post(mCaptureEvents);
+  }
 
-    if (timer != null) {
-      timer.cancel();
-      timer.purge();
+  private void stopCaptureEvents() {
+    mEventsRunning = false;
+    if (mEventHandler != null)
+      mEventHandler.removeCallbacks(mCaptureEvents);
+  }
+
+  @ReactMethod
+  public void getMetrics(Callback callback) {
+    callback.invoke(null, mMetrics.toWritableMap());
+  }
+
+  @ReactMethod
+  public void resetMetrics(Callback callback) {
+    mMetrics.reset();
+    callback.invoke();
+  }
+
+  @ReactMethod
+  public void setProgressInterval(ReadableMap options, Callback callback) {
+    long interval = options.hasKey("interval") ? options.getInt("interval") : -1;
+    long backgroundInterval = options.hasKey("backgroundInterval") ? options.getInt("backgroundInterval") : -1;
+    Ticker.get().setInterval(interval, backgroundInterval);
+    callback.invoke();
+  }
+
+  @Override
+  public void onHostResume() {
+    Ticker.get().setForeground(true);
+  }
+
+  @Override
+  public void onHostPause() {
+    Ticker.get().setForeground(false);
+  }
+
+  @Override
+  public void onHostDestroy() {
+  }
+
+  @Override
+  public void onCatalystInstanceDestroy() {
+    stopCaptureEvents();
+    if (mEventThread != null) {
+      mEventThread.quit();
+      mEventThread = null;
     }
   }
 }
@@ -0,0 +1,116 @@
+package com.reactnativesoundmanagement;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One background thread that drives the progress events of every player and
+ * recorder, instead of a java.util.Timer thread per play()/record().
+ *
+ * The interval is shared: {@link #setInterval} picks the foreground rate and
+ * {@link #setForeground} switches to the background rate (0 pauses ticking)
+ * while the app is not visible.
+ */
+class Ticker {
+  interface Listener {
+    void onTick();
+  }
+
+  static final long DEFAULT_INTERVAL_MS = 100;
+  static final long DEFAULT_BACKGROUND_INTERVAL_MS = 1000;
+
+  private static Ticker sInstance;
+
+  private final Handler mHandler;
+  private final List<Listener> mListeners = new ArrayList<>();
+  private long mInterval = DEFAULT_INTERVAL_MS;
+  private long mBackgroundInterval = DEFAULT_BACKGROUND_INTERVAL_MS;
+  private boolean mForeground = true;
+  private boolean mScheduled = false;
+
+  private final Runnable mTick = new Runnable() {
+    @Override
+    public void run() {
+      long started = SystemClock.uptimeMillis();
+      Listener[] listeners;
+
+      synchronized (Ticker.this) {
+        mScheduled = false;
+        listeners = mListeners.toArray(new Listener[mListeners.size()]);
+      }
+
+      for (Listener listener : listeners)
+        listener.onTick();
+
+      synchronized (Ticker.this) {
+        long interval = currentInterval();
+        if (!mListeners.isEmpty() && interval > 0 && !mScheduled) {
+          mHandler.postAtTime(this, started + interval);
+          mScheduled = true;
+        }
+      }
+    }
+  };
+
+  static synchronized Ticker get() {
+    if (sInstance == null)
+      sInstance = new Ticker();
+    return sInstance;
+  }
+
+  private Ticker() {
+    HandlerThread thread = new HandlerThread("SoundManagementTicker");
+    thread.start();
+    mHandler = new Handler(thread.getLooper());
+  }
+
+  synchronized void add(Listener listener) {
+    if (!mListeners.contains(listener))
+      mListeners.add(listener);
+    reschedule();
+  }
+
+  synchronized void remove(Listener listener) {
+    mListeners.remove(listener);
+    if (mListeners.isEmpty()) {
+      mHandler.removeCallbacks(mTick);
+      mScheduled = false;
+    }
+  }
+
+  /**
+   * @param interval foreground interval in ms
+   * @param backgroundInterval interval while the app is hidden, 0 to stop ticking
+   */
+  synchronized void setInterval(long interval, long backgroundInterval) {
+    if (interval > 0)
+      mInterval = interval;
+    if (backgroundInterval >= 0)
+      mBackgroundInterval = backgroundInterval;
+    reschedule();
+  }
+
+  synchronized void setForeground(boolean foreground) {
+    if (mForeground == foreground)
+      return;
+    mForeground = foreground;
+    reschedule();
+  }
+
+  private long currentInterval() {
+    return mForeground ? mInterval : mBackgroundInterval;
+  }
+
+  private void reschedule() {
+    mHandler.removeCallbacks(mTick);
+    mScheduled = false;
+    if (!mListeners.isEmpty() && currentInterval() > 0) {
+      mHandler.post(mTick);
+      mScheduled = true;
+    }
+  }
+}
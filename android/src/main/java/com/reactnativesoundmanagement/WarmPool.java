@@ -0,0 +1,146 @@
+package com.reactnativesoundmanagement;
+
+import android.media.MediaPlayer;
+
+import java.util.Map;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * MediaPlayers prepared ahead for paths JS expects to play next, so a later
+ * prepare of such a path only hands the player over. Bounded by count and by
+ * an estimate of what each prepared player holds (decoder and, for streams,
+ * network buffers); least recently hinted entries go first.
+ *
+ * Player thread only.
+ */
+class WarmPool {
+  static final int DEFAULT_MAX_PLAYERS = 3;
+  static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+  private static final long LOCAL_PLAYER_BYTES = 512 * 1024;
+  private static final long STREAM_PLAYER_BYTES = 2 * 1024 * 1024;
+
+  static final class Entry {
+    final String path;
+    final MediaPlayer mediaPlayer;
+    final long bytes;
+    boolean prepared;
+
+    Entry(String path, MediaPlayer mediaPlayer, long bytes) {
+      this.path = path;
+      this.mediaPlayer = mediaPlayer;
+      this.bytes = bytes;
+    }
+  }
+
+  private final Map<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+  private int mMaxPlayers = DEFAULT_MAX_PLAYERS;
+  private long mMaxBytes = DEFAULT_MAX_BYTES;
+  private long mBytes = 0;
+
+  void setLimits(int maxPlayers, long maxBytes) {
+    if (maxPlayers >= 0)
+      mMaxPlayers = maxPlayers;
+    if (maxBytes >= 0)
+      mMaxBytes = maxBytes;
+    trim();
+  }
+
+  /**
+   * Refreshes the entry's place in the LRU; false if it is not pooled.
+   */
+  boolean touch(String path) {
+    return mEntries.get(path) != null;
+  }
+
+  static long estimateBytes(boolean stream) {
+    return stream ? STREAM_PLAYER_BYTES : LOCAL_PLAYER_BYTES;
+  }
+
+  /**
+   * Whether an entry of that size could be pooled at all.
+   */
+  boolean fits(long bytes) {
+    return mMaxPlayers > 0 && bytes <= mMaxBytes;
+  }
+
+  /**
+   * Adds a player whose prepareAsync is in flight, evicting the least
+   * recently hinted entries over the limits.
+   */
+  void add(String path, MediaPlayer mediaPlayer, long bytes) {
+    remove(path);
+    mEntries.put(path, new Entry(path, mediaPlayer, bytes));
+    mBytes += bytes;
+    trim();
+  }
+
+  /**
+   * Hands the pooled player for path over to the caller, prepared or still
+   * preparing; null if there is none.
+   */
+  Entry take(String path) {
+    Entry entry = mEntries.remove(path);
+    if (entry != null)
+      mBytes -= entry.bytes;
+    return entry;
+  }
+
+  boolean owns(MediaPlayer mediaPlayer) {
+    return find(mediaPlayer) != null;
+  }
+
+  void onPrepared(MediaPlayer mediaPlayer) {
+    Entry entry = find(mediaPlayer);
+    if (entry != null)
+      entry.prepared = true;
+  }
+
+  /**
+   * Drops the entry of a player that failed.
+   */
+  void onError(MediaPlayer mediaPlayer) {
+    Entry entry = find(mediaPlayer);
+    if (entry != null)
+      release(take(entry.path));
+  }
+
+  void remove(String path) {
+    Entry entry = take(path);
+    if (entry != null)
+      release(entry);
+  }
+
+  void clear() {
+    for (Entry entry : mEntries.values())
+      release(entry);
+    mEntries.clear();
+    mBytes = 0;
+  }
+
+  int size() {
+    return mEntries.size();
+  }
+
+  private Entry find(MediaPlayer mediaPlayer) {
+    for (Entry entry : mEntries.values()) {
+      if (entry.mediaPlayer == mediaPlayer)
+        return entry;
+    }
+    return null;
+  }
+
+  private void trim() {
+    Iterator<Entry> iterator = mEntries.values().iterator();
+    while (iterator.hasNext() && (mEntries.size() > mMaxPlayers || mBytes > mMaxBytes)) {
+      Entry eldest = iterator.next();
+      iterator.remove();
+      mBytes -= eldest.bytes;
+      release(eldest);
+    }
+  }
+
+  private void release(Entry entry) {
+    entry.mediaPlayer.release();
+  }
+}
@@ -0,0 +1,275 @@
+package com.reactnativesoundmanagement;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.nio.ByteBuffer;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring consumer that writes the captured PCM to a WAV file on its own thread.
+ * The header is patched with the final sizes when the writer is finished.
+ *
+ * With a {@link SegmentPlan} the output rotates to the next file at a slot
+ * boundary once the current one reaches the plan's limit, so no captured
+ * slot is lost between files; every finished file is complete and playable.
+ *
+ * RIFF sizes are unsigned 32-bit, so no file grows past 4GB: segments
+ * rotate before that even if the plan allows more, and a single file stops
+ * taking slots there (about 6.7 hours of 44.1kHz stereo).
+ *
+ * With a {@link VoiceActivity} inactive slots are skipped (pause), or only
+ * the silence before the first and after the last speech is left out (trim).
+ */
+class WavWriter implements PcmSink, Runnable {
+  private static final int HEADER_BYTES = 44;
+  // The RIFF size counts the data plus the 36 header bytes after it
+  private static final long MAX_DATA_BYTES = 0xFFFFFFFFL - (HEADER_BYTES - 8);
+
+  interface SegmentListener {
+    /**
+     * A segment file was closed; called on the writer thread, or from
+     * finish() for the last one.
+     */
+    void onSegment(File file, int index, long dataBytes);
+  }
+
+  private final PcmRingBuffer mRing;
+  private PcmRingBuffer.Cursor mCursor; // replaced in start()
+  private final int mSampleRate;
+  private final int mChannels;
+  private final long mParkNanos;
+  private final ByteBuffer mHeader = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+  private RandomAccessFile mFile;
+  private FileChannel mChannel;
+  private volatile boolean mRunning = false;
+  private Thread mThread;
+  private IOException mError;
+  private long mDataBytes = 0; // of the current file
+  private long mTotalBytes = 0;
+  private final SegmentPlan mPlan;
+  private final SegmentListener mSegmentListener;
+  private final long mSegmentBytes;
+  private final long mMaxBytes; // of one file
+  private File mCurrent;
+  private int mSegment = 0;
+  private long mMaxLag = 0;
+  private final VoiceActivity mVoiceActivity;
+  private boolean mSpoken = false;
+  private long mSpeechEndBytes = 0; // of the current file, trim cuts there
+
+  WavWriter(PcmCapture capture, File file) throws IOException {
+    this(capture, file, null, null, null);
+  }
+
+  /**
+   * @param plan segmented output, file is ignored when set
+   * @param voiceActivity silence handling, or null to keep everything
+   */
+  WavWriter(PcmCapture capture, File file, SegmentPlan plan, SegmentListener listener,
+      VoiceActivity voiceActivity) throws IOException {
+    mRing = capture.ring();
+    mCursor = mRing.newCursor();
+    mSampleRate = capture.sampleRate;
+    mChannels = capture.channels;
+    mParkNanos = PcmCapture.SLOT_MILLIS * 1000000L / 2;
+    mPlan = plan;
+    mSegmentListener = listener;
+    mVoiceActivity = voiceActivity;
+    int frameBytes = 2 * mChannels;
+    mMaxBytes = MAX_DATA_BYTES - MAX_DATA_BYTES % frameBytes;
+    long planBytes = plan != null ? plan.byteLimit(capture.byteRate(), frameBytes) : 0;
+    mSegmentBytes = plan != null ? Math.min(planBytes > 0 ? planBytes : mMaxBytes, mMaxBytes) : 0;
+    open(plan != null ? new File(plan.path(0)) : file);
+  }
+
+  private void open(File file) throws IOException {
+    mCurrent = file;
+    mDataBytes = 0;
+    mSpeechEndBytes = 0;
+    mFile = new RandomAccessFile(file, "rw");
+    mFile.setLength(0);
+    mChannel = mFile.getChannel();
+    writeHeader();
+  }
+
+  /**
+   * Patches the header of the current file and closes it.
+   */
+  private void close() throws IOException {
+    try {
+      writeHeader();
+      mChannel.force(false);
+    } finally {
+      mFile.close();
+      mChannel = null;
+    }
+  }
+
+  private void rotate() throws IOException {
+    File finished = mCurrent;
+    long bytes = mDataBytes;
+    int index = mSegment++;
+    close();
+    open(new File(mPlan.path(mSegment)));
+    if (mSegmentListener != null)
+      mSegmentListener.onSegment(finished, index, bytes);
+  }
+
+  @Override
+  public void start(int backSlots) {
+    mCursor = mRing.newCursor(backSlots);
+    mRunning = true;
+    mThread = new Thread(this, "SoundManagementWavWriter");
+    mThread.start();
+  }
+
+  /**
+   * Drains what the capture already published, fixes up the header and closes
+   * the file. Stop the capture first to get everything up to that point.
+   */
+  @Override
+  public void finish() throws IOException {
+    mRunning = false;
+    if (mThread != null) {
+      LockSupport.unpark(mThread);
+      try {
+        mThread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      mThread = null;
+    }
+
+    if (mChannel == null)
+      return;
+    if (mError != null) {
+      mFile.close();
+      mChannel = null;
+      throw mError;
+    }
+
+    if (mVoiceActivity != null && mVoiceActivity.silence == VoiceActivity.Silence.TRIM)
+      trimTrailingSilence();
+    close();
+    if (mPlan != null && mSegmentListener != null)
+      mSegmentListener.onSegment(mCurrent, mSegment, mDataBytes);
+  }
+
+  private void trimTrailingSilence() throws IOException {
+    if (mDataBytes <= mSpeechEndBytes)
+      return;
+    mChannel.truncate(HEADER_BYTES + mSpeechEndBytes);
+    mTotalBytes -= mDataBytes - mSpeechEndBytes;
+    mDataBytes = mSpeechEndBytes;
+  }
+
+  /**
+   * Whether a slot goes into the file under the silence mode.
+   */
+  private boolean keep(boolean active) {
+    if (mVoiceActivity == null)
+      return true;
+
+    switch (mVoiceActivity.silence) {
+      case PAUSE:
+        return active;
+      case TRIM:
+        mSpoken |= active;
+        return mSpoken;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Bytes of audio written, over all segments.
+   */
+  long dataBytes() {
+    return mTotalBytes;
+  }
+
+  @Override
+  public long dropped() {
+    return mCursor.dropped();
+  }
+
+  @Override
+  public long maxLag() {
+    return mMaxLag;
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        long seq = mCursor.next();
+        mMaxLag = Math.max(mMaxLag, mCursor.lag());
+        if (seq < 0) {
+          if (!mRunning)
+            break;
+          LockSupport.parkNanos(mParkNanos);
+          continue;
+        }
+
+        boolean active = mVoiceActivity != null && mVoiceActivity.isActive(seq);
+        if (!keep(active)) {
+          mCursor.advance(seq);
+          continue;
+        }
+
+        int length = mRing.length(seq);
+        if (mSegmentBytes > 0 && mDataBytes > 0 && mDataBytes + length > mSegmentBytes) {
+          rotate();
+        } else if (mDataBytes + length > mMaxBytes) {
+          // Unsegmented file is full, the header could not describe more
+          mCursor.advance(seq);
+          continue;
+        }
+
+        long position = mChannel.position();
+        ByteBuffer view = mCursor.view(seq);
+        while (view.hasRemaining())
+          mChannel.write(view);
+
+        if (mCursor.advance(seq)) {
+          mDataBytes += length;
+          mTotalBytes += length;
+          if (active)
+            mSpeechEndBytes = mDataBytes;
+        } else {
+          // Overwritten while copying, drop the torn slot
+          mChannel.position(position);
+        }
+      }
+    } catch (IOException e) {
+      mError = e;
+    }
+  }
+
+  private void writeHeader() throws IOException {
+    int byteRate = mSampleRate * mChannels * 2;
+    mHeader.clear();
+    mHeader.put((byte) 'R').put((byte) 'I').put((byte) 'F').put((byte) 'F');
+    mHeader.putInt((int) (36 + mDataBytes)); // unsigned, below 4GB
+    mHeader.put((byte) 'W').put((byte) 'A').put((byte) 'V').put((byte) 'E');
+    mHeader.put((byte) 'f').put((byte) 'm').put((byte) 't').put((byte) ' ');
+    mHeader.putInt(16);
+    mHeader.putShort((short) 1); // PCM
+    mHeader.putShort((short) mChannels);
+    mHeader.putInt(mSampleRate);
+    mHeader.putInt(byteRate);
+    mHeader.putShort((short) (mChannels * 2));
+    mHeader.putShort((short) 16);
+    mHeader.put((byte) 'd').put((byte) 'a').put((byte) 't').put((byte) 'a');
+    mHeader.putInt((int) mDataBytes);
+    mHeader.flip();
+
+    long position = mChannel.position();
+    while (mHeader.hasRemaining())
+      mChannel.write(mHeader, HEADER_BYTES - mHeader.remaining());
+    mChannel.position(Math.max(position, HEADER_BYTES));
+  }
+}
@@ -0,0 +1,226 @@
+package com.reactnativesoundmanagement;
+
+import android.net.Uri;
+import android.content.Context;
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.media.MediaExtractor;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.nio.ByteBuffer;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * Decodes a track once with MediaExtractor/MediaCodec into min/max peaks and
+ * keeps them in a small binary file keyed by path, size and mtime, so later
+ * requests are a memory-mapped read. Peaks of streams and resources have no
+ * size or mtime to key by and are decoded again after REMOTE_TTL_MS.
+ *
+ * Peak file: "PEAK", int version, int buckets, then buckets (min, max) shorts,
+ * little endian.
+ */
+class WaveformExtractor {
+  private static final int MAGIC = 0x4b414550; // "PEAK"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 12;
+  private static final long TIMEOUT_US = 10000;
+  private static final long CACHE_BYTES = 4 * 1024 * 1024;
+  private static final long REMOTE_TTL_MS = 24 * 60 * 60 * 1000;
+  // Leaves files another extraction is still writing
+  private static final DiskCache.Policy TRIM_POLICY = new DiskCache.Policy() {
+    @Override
+    public boolean evictable(File file) {
+      return !file.getName().endsWith(".tmp");
+    }
+
+    @Override
+    public long evicted(File file) {
+      return 0;
+    }
+  };
+
+  private final Context context;
+  private final File mDir;
+
+  WaveformExtractor(Context context) {
+    this.context = context;
+    this.mDir = new File(context.getCacheDir(), "peaks");
+  }
+
+  static class Peaks {
+    final short[] min;
+    final short[] max;
+
+    Peaks(short[] min, short[] max) {
+      this.min = min;
+      this.max = max;
+    }
+  }
+
+  /**
+   * @param local the file behind uri, or null for resources and streams
+   */
+  Peaks extract(String path, Uri uri, File local, int buckets) throws IOException {
+    String key = path + "|" + buckets;
+    if (local != null)
+      key += "|" + local.length() + "|" + local.lastModified();
+    File cache = new File(mDir, DiskCache.key(key) + ".peaks");
+
+    if (local == null && System.currentTimeMillis() - cache.lastModified() > REMOTE_TTL_MS)
+      cache.delete();
+    Peaks peaks = read(cache, buckets);
+    if (peaks != null) {
+      // Local entries are trimmed least recently used, remote ones expire from when written
+      if (local != null)
+        cache.setLastModified(System.currentTimeMillis());
+      return peaks;
+    }
+
+    PeakReducer reducer = decode(uri, buckets);
+    peaks = new Peaks(reducer.min(), reducer.max());
+    write(cache, peaks);
+    DiskCache.trim(mDir, CACHE_BYTES, TRIM_POLICY);
+    return peaks;
+  }
+
+  private Peaks read(File cache, int buckets) {
+    if (!cache.exists())
+      return null;
+
+    RandomAccessFile raf = null;
+    try {
+      raf = new RandomAccessFile(cache, "r");
+      FileChannel channel = raf.getChannel();
+      ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+      if (map.remaining() < HEADER_BYTES || map.getInt() != MAGIC || map.getInt() != VERSION || map.getInt() != buckets)
+        return null;
+      if (map.remaining() < buckets * 4)
+        return null;
+
+      short[] min = new short[buckets];
+      short[] max = new short[buckets];
+      for (int i = 0; i < buckets; i++) {
+        min[i] = map.getShort();
+        max[i] = map.getShort();
+      }
+      return new Peaks(min, max);
+    } catch (IOException e) {
+      return null;
+    } finally {
+      if (raf != null) {
+        try { raf.close(); } catch (IOException e) {}
+      }
+    }
+  }
+
+  private void write(File cache, Peaks peaks) throws IOException {
+    if (!mDir.exists() && !mDir.mkdirs())
+      return;
+
+    int buckets = peaks.min.length;
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + buckets * 4).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(buckets);
+    for (int i = 0; i < buckets; i++)
+      buffer.putShort(peaks.min[i]).putShort(peaks.max[i]);
+    buffer.flip();
+
+    File tmp = new File(mDir, cache.getName() + ".tmp");
+    RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+    try {
+      raf.setLength(0);
+      FileChannel channel = raf.getChannel();
+      while (buffer.hasRemaining())
+        channel.write(buffer);
+    } finally {
+      raf.close();
+    }
+    if (!tmp.renameTo(cache))
+      tmp.delete();
+  }
+
+  @SuppressWarnings("deprecation")
+  private PeakReducer decode(Uri uri, int buckets) throws IOException {
+    MediaExtractor extractor = new MediaExtractor();
+    MediaCodec codec = null;
+
+    try {
+      extractor.setDataSource(this.context, uri, null);
+
+      MediaFormat format = null;
+      for (int i = 0; i < extractor.getTrackCount(); i++) {
+        MediaFormat candidate = extractor.getTrackFormat(i);
+        String mime = candidate.getString(MediaFormat.KEY_MIME);
+        if (mime != null && mime.startsWith("audio/")) {
+          extractor.selectTrack(i);
+          format = candidate;
+          break;
+        }
+      }
+      if (format == null)
+        throw new IOException("No audio track in " + uri);
+
+      int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+      int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+      long durationUs = format.containsKey(MediaFormat.KEY_DURATION) ? format.getLong(MediaFormat.KEY_DURATION) : 0;
+      PeakReducer reducer = new PeakReducer(buckets, durationUs * sampleRate / 1000000L);
+
+      codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+      codec.configure(format, null, null, 0);
+      codec.start();
+
+      ByteBuffer[] inputs = codec.getInputBuffers();
+      ByteBuffer[] outputs = codec.getOutputBuffers();
+      MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+      boolean inputDone = false;
+
+      while (true) {
+        if (!inputDone) {
+          int in = codec.dequeueInputBuffer(TIMEOUT_US);
+          if (in >= 0) {
+            int size = extractor.readSampleData(inputs[in], 0);
+            if (size < 0) {
+              codec.queueInputBuffer(in, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+              inputDone = true;
+            } else {
+              codec.queueInputBuffer(in, 0, size, extractor.getSampleTime(), 0);
+              extractor.advance();
+            }
+          }
+        }
+
+        int out = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+        if (out == MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED) {
+          outputs = codec.getOutputBuffers();
+        } else if (out == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+          MediaFormat outputFormat = codec.getOutputFormat();
+          if (outputFormat.containsKey(MediaFormat.KEY_CHANNEL_COUNT))
+            channels = outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+        } else if (out >= 0) {
+          if (info.size > 0) {
+            ByteBuffer buffer = outputs[out];
+            buffer.position(info.offset);
+            buffer.limit(info.offset + info.size);
+            ShortBuffer samples = buffer.slice().order(ByteOrder.nativeOrder()).asShortBuffer();
+            reducer.add(samples, info.size / 2, channels);
+          }
+          codec.releaseOutputBuffer(out, false);
+          if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0)
+            break;
+        }
+      }
+      return reducer;
+    } finally {
+      if (codec != null) {
+        try {
+          codec.stop();
+        } catch (IllegalStateException e) {}
+        codec.release();
+      }
+      extractor.release();
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.reactnativesoundmanagement;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+/**
+ * {@link EventPayloads.Writer} backed by the bridge's native maps.
+ */
+final class WritableMaps implements EventPayloads.Writer<WritableMap> {
+  static final WritableMaps WRITER = new WritableMaps();
+
+  private WritableMaps() {}
+
+  @Override
+  public WritableMap create() {
+    return new WritableNativeMap();
+  }
+
+  @Override
+  public void putDouble(WritableMap map, String key, double value) {
+    map.putDouble(key, value);
+  }
+
+  @Override
+  public void putInt(WritableMap map, String key, int value) {
+    map.putInt(key, value);
+  }
+
+  @Override
+  public void putBoolean(WritableMap map, String key, boolean value) {
+    map.putBoolean(key, value);
+  }
+
+  @Override
+  public void putString(WritableMap map, String key, String value) {
+    map.putString(key, value);
+  }
+}
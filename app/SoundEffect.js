@@ -0,0 +1,60 @@
+import { NativeModules } from 'react-native';
+
+import _ from 'lodash';
+
+const RCTSoundEffectModule = NativeModules.SoundEffectModule
+
+class SoundEffect {
+  constructor(path) {
+    this._path = path;
+    this._soundId = null;
+  }
+
+  static setMaxStreams(maxStreams, callback = _.noop) {
+    RCTSoundEffectModule.setMaxStreams(maxStreams, callback);
+  }
+
+  static release(callback = _.noop) {
+    RCTSoundEffectModule.release(callback);
+  }
+
+  load(callback = _.noop) {
+    RCTSoundEffectModule.load(this._path, (err, data) => {
+      this._soundId = data ? data.soundId : null;
+      callback(err);
+    });
+
+    return this;
+  }
+
+  play(options = {}, callback = _.noop) {
+    if (this._soundId === null) {
+      setTimeout(() => callback({err: 'notloaded', message: 'Call load() first'}), 0);
+      return this;
+    }
+
+    RCTSoundEffectModule.play(this._soundId, options, (err, data) => {
+      // The pool was recreated (setMaxStreams/release), load() again
+      if (err && err.err === 'notloaded')
+        this._soundId = null;
+      callback(err, data ? data.streamId : null);
+    });
+
+    return this;
+  }
+
+  stop(streamId) {
+    RCTSoundEffectModule.stop(streamId);
+    return this;
+  }
+
+  unload(callback = _.noop) {
+    if (this._soundId !== null)
+      RCTSoundEffectModule.unload(this._soundId, callback);
+    this._soundId = null;
+  }
+
+  get isLoaded() { return this._soundId !== null; }
+}
+
+export default SoundEffect;
@@ -11,11 +11,29 @@ import EventEmitter from 'eventemitter3';
 import MediaStates from './MediaStates';
 
 const RCTSoundPlayerModule = NativeModules.SoundPlayerModule
+let nextPlayerId = 0;
+
+// Date.now() minus the native anchor clock, measured once over a bridge
+// round trip; anchors are extrapolated from receipt until it is known
+let clockOffset = null;
+let clockOffsetPending = false;
+
+function measureClockOffset() {
+  if (clockOffset !== null || clockOffsetPending || Platform.OS !== 'android')
+    return;
+  clockOffsetPending = true;
+  const sent = Date.now();
+  RCTSoundPlayerModule.getClock((nativeNow) => {
+    clockOffset = (sent + Date.now()) / 2 - nativeNow;
+    clockOffsetPending = false;
+  });
+}
 
 class SoundPlayer extends EventEmitter {
   constructor(path, options = {}) {
     super();
     this._onReset();
+    this._playerId = nextPlayerId++;
     this._path = path;
     this._options = options;
     this._onHandleEvent = this._onHandleEvent.bind(this);
@@ -24,11 +42,83 @@ class SoundPlayer extends EventEmitter {
     appEventEmitter.addListener('RCTSoundPlayerModuleBridgeEvent', this._onHandleEvent);
   }
 
+  // Android only: rate of 'progress' events for all players and recorders,
+  // e.g. { interval: 100, backgroundInterval: 0 }
+  static setProgressInterval(options = {}, callback = _.noop) {
+    RCTSoundPlayerModule.setProgressInterval(options, callback);
+  }
+
+  // Android only: resolve paths natively ahead of prepare
+  static preresolve(paths = [], callback = _.noop) {
+    RCTSoundPlayerModule.preresolve(paths, callback);
+  }
+
+  // Android only: keep players for the likeliest next paths prepared, most
+  // likely first, e.g. warm(paths, { maxPlayers: 3, maxBytes: 8 * 1024 * 1024 }).
+  // A later play()/prepare() of such a path starts without setup.
+  static warm(paths = [], options = {}, callback = _.noop) {
+    RCTSoundPlayerModule.warm(paths, options, callback);
+  }
+
+  static clearWarm(callback = _.noop) {
+    RCTSoundPlayerModule.clearWarm(callback);
+  }
+
+  static clearPathCache(callback = _.noop) {
+    RCTSoundPlayerModule.clearPathCache(callback);
+  }
+
+  // Android only: { buckets, min: [...], max: [...] } with peaks in -1..1
+  static getWaveform(path, buckets = 200, callback = _.noop) {
+    RCTSoundPlayerModule.getWaveform(path, buckets, callback);
+  }
+
+  // Android only: { latency: { prepare: { count, mean, p50, p90, p99, max }, ... }, counters: {...} }
+  static getMetrics(callback = _.noop) {
+    RCTSoundPlayerModule.getMetrics(callback);
+  }
+
+  static resetMetrics(callback = _.noop) {
+    RCTSoundPlayerModule.resetMetrics(callback);
+  }
+
+  // Android only: cache streamed tracks on disk, e.g. { enabled: true, maxSize: 100 * 1024 * 1024 }
+  static setStreamCache(options = {}, callback = _.noop) {
+    RCTSoundPlayerModule.setStreamCache(options, callback);
+  }
+
   _onHandleEvent(res){
-    const { event, data } = res
+    const { event, data, playerId } = res
+    if (playerId != null && playerId !== this._playerId)
+      return false;
+    if (event === 'anchor')
+      this._onAnchor(data);
+    if (event === 'trackchanged')
+      this._path = data.path;
     return this.emit(event, data);
   }
 
+  // Position anchors arrive only on play/pause/seek/rate changes, currentTime
+  // extrapolates from the latest one, from when native sampled it
+  _onAnchor(data) {
+    measureClockOffset();
+    this._anchor = {
+      position: data.position,
+      rate: data.rate,
+      timestamp: data.timestamp,
+      receivedAt: Date.now(),
+    };
+    this._position = data.position;
+    this._duration = data.duration;
+  }
+
+  // Android keeps one native player per id, iOS still drives a single player
+  _native(method, ...args) {
+    if (Platform.OS === 'android')
+      args.unshift(this._playerId);
+    return RCTSoundPlayerModule[method](...args);
+  }
+
   _onReset() {
     this._state = MediaStates.IDLE;
     this._volume = 1.0;
@@ -41,6 +131,7 @@ class SoundPlayer extends EventEmitter {
     this._duration = -1;
     this._position = -1;
     this._looping = false;
+    this._anchor = null;
   }
 
   _fetchInfo(info) {
@@ -68,7 +159,7 @@ class SoundPlayer extends EventEmitter {
   }
 
   options(options = {}, callback = _.noop){
-    RCTSoundPlayerModule.set(options, callback);
+    this._native('set', options, callback);
   }
 
   prepare(path = null, callback = _.noop) {
@@ -79,15 +170,18 @@ class SoundPlayer extends EventEmitter {
 
     let tasks = [];
 
-    // Prepare player
+    // Prepare player, off the bridge thread unless asked otherwise
     tasks.push((next) => {
-      RCTSoundPlayerModule.prepare(this._path, next);
+      if (this._options.asyncPrepare === false || !RCTSoundPlayerModule.prepareAsync)
+        this._native('prepare', this._path, next);
+      else
+        this._native('prepareAsync', this._path, next);
     });
 
     const { _options } =  this
     // Set initial values for player options
     tasks.push((next) => {
-      RCTSoundPlayerModule.set({
+      this._native('set', {
         ..._options,
         pan: this._pan,
         volume: this._volume,
@@ -97,6 +191,10 @@ class SoundPlayer extends EventEmitter {
     });
 
     async.series(tasks, (err, results) => {
+      // A newer prepare or destroy took over, leave its state alone
+      if (err && err.err === 'cancelled') {
+        return callback(err);
+      }
       this._updateState(err, MediaStates.PREPARED, results);
       callback(err);
     });
@@ -104,7 +202,97 @@ class SoundPlayer extends EventEmitter {
     return this;
   }
 
+  // Android only: plays the items back to back, preparing each next item
+  // natively while the current one plays. Items are paths or
+  // { path, title, singer, image_url }. Listen for 'trackchanged', which also
+  // fires when the notification's next/previous buttons skip natively.
+  setQueue(items = [], callback = _.noop) {
+    const first = _.first(items);
+    this._path = _.isString(first) ? first : first && first.path;
+    this._updateState(null, MediaStates.PREPARING);
+
+    this._native('setQueue', items, (err, info) => {
+      if (err && err.err === 'cancelled') {
+        return callback(err);
+      }
+      this._updateState(err, MediaStates.PREPARED, [info]);
+      callback(err);
+    });
+
+    return this;
+  }
+
+  appendQueue(items = [], callback = _.noop) {
+    this._native('appendQueue', items, callback);
+    return this;
+  }
+
+  skipNext(callback = _.noop) {
+    this._native('skipNext', callback);
+    return this;
+  }
+
+  skipPrevious(callback = _.noop) {
+    this._native('skipPrevious', callback);
+    return this;
+  }
+
+  skipTo(index, callback = _.noop) {
+    this._native('skipTo', index, callback);
+    return this;
+  }
+
+  setShuffle(shuffle, callback = _.noop) {
+    this._native('setShuffle', !!shuffle, callback);
+    return this;
+  }
+
+  // 'none', 'one' or 'all'
+  setRepeat(repeat, callback = _.noop) {
+    this._native('setRepeat', repeat, callback);
+    return this;
+  }
+
+  // Android only: fade queue items into each other instead of chaining them,
+  // e.g. { duration: 3000, curve: 'equalPower' | 'linear' | 'sCurve' }.
+  // A duration of 0 goes back to gapless playback.
+  setCrossfade(options = {}, callback = _.noop) {
+    this._native('setCrossfade', options, callback);
+    return this;
+  }
+
+  // Prepare, set and play in a single bridge call (Android)
+  _coldPlay(callback) {
+    const { _options } = this;
+    const prepareOp = _options.asyncPrepare === false ? 'prepare' : 'prepareAsync';
+
+    this._updateState(null, MediaStates.PREPARING);
+    this._native('execute', [
+      { op: prepareOp, path: this._path },
+      { op: 'set', options: {
+        ..._options,
+        pan: this._pan,
+        volume: this._volume,
+        looping: this._looping,
+        wakeLock: this._wakeLock
+      } },
+      { op: 'play' },
+    ], (err, results) => {
+      if (err && err.err === 'cancelled') {
+        return callback(err);
+      }
+      this._updateState(err, MediaStates.PLAYING, results);
+      callback(err);
+    });
+
+    return this;
+  }
+
   play(callback = _.noop) {
+    if (this._state === MediaStates.IDLE && RCTSoundPlayerModule.execute) {
+      return this._coldPlay(callback);
+    }
+
     let tasks = [];
 
     // Make sure player is prepared
@@ -116,7 +304,7 @@ class SoundPlayer extends EventEmitter {
 
     // Start playback
     tasks.push((next) => {
-      RCTSoundPlayerModule.play(next);
+      this._native('play', next);
     });
 
     async.series(tasks, (err, results) => {
@@ -128,7 +316,7 @@ class SoundPlayer extends EventEmitter {
   }
 
   pause(callback = _.noop) {
-    RCTSoundPlayerModule.pause((err, results) => {
+    this._native('pause', (err, results) => {
       this._updateState(err, MediaStates.PAUSED, [results]);
       callback(err);
     });
@@ -137,7 +325,7 @@ class SoundPlayer extends EventEmitter {
   }  
 
   setUrl(path =  null, callback = _.noop) {
-    RCTSoundPlayerModule.setUrl(path, callback)
+    this._native('setUrl', path, callback)
     return this;
   }
 
@@ -156,7 +344,7 @@ class SoundPlayer extends EventEmitter {
   }
 
   stop(callback = _.noop) {
-    RCTSoundPlayerModule.stop((err, results) => {
+    this._native('stop', (err, results) => {
       this._updateState(err, MediaStates.PREPARED);
       this._position = -1;
       callback(err);
@@ -167,7 +355,7 @@ class SoundPlayer extends EventEmitter {
 
   destroy(callback = _.noop) {
     this._reset();
-    RCTSoundPlayerModule.destroy(callback);
+    this._native('destroy', callback);
   }
 
   seek(position = 0, callback = _.noop) {
@@ -176,8 +364,9 @@ class SoundPlayer extends EventEmitter {
     }
 
     this._updateState(null, MediaStates.SEEKING);
-    RCTSoundPlayerModule.seek(position, (err, results) => {
-      if (err && err.err === 'seekfail') {
+    this._native('seek', position, (err, results) => {
+      // Released or re-prepared under the seek
+      if (err && (err.err === 'seekfail' || err.err === 'cancelled')) {
         return;
       }
       this._updateState(err, this._preSeekState, [results]);
@@ -185,8 +374,19 @@ class SoundPlayer extends EventEmitter {
     });
   }
 
+  // Fast keyframe seek while dragging a seekbar, end the drag with seek().
+  // Android only, iOS falls back to seek().
+  scrub(position = 0) {
+    if (Platform.OS !== 'android') {
+      return this.seek(position);
+    }
+
+    this._position = position;
+    this._native('scrub', position);
+  }
+
   _setIfInitialized(options, callback = _.noop) {
-    RCTSoundPlayerModule.set(options, callback);
+    this._native('set', options, callback);
   }
 
   set title(value) {
@@ -229,7 +429,15 @@ class SoundPlayer extends EventEmitter {
   }
 
   get currentTime() {
-    return this._position;
+    const anchor = this._anchor;
+    if (!anchor || !anchor.rate) {
+      return this._position;
+    }
+
+    const sampledAt = clockOffset !== null && anchor.timestamp != null
+      ? anchor.timestamp + clockOffset : anchor.receivedAt;
+    let position = anchor.position + (Date.now() - sampledAt) * anchor.rate;
+    return this._duration > 0 ? Math.min(position, this._duration) : position;
   }
 
   get title(){
@@ -15,6 +15,23 @@ import MediaStates from './MediaStates';
 var RCTSMSoundRecorder = NativeModules.SoundRecorderModule;
 
 class SoundRecorder extends EventEmitter {
+  // Android only: options.segmentDuration (ms) and/or options.segmentSize
+  // (bytes) split the recording into path_000.ext, path_001.ext... with no gap
+  // between files. A 'segment' event { filepath, index, bytes, duration }
+  // fires as each file is finished, the last one on stop(). Segments from the
+  // PCM pipeline (mode: 'pcm', preroll, vad, or Android < 8) are always .wav
+  // files, e.g. talk.m4a becomes talk_000.wav; only MediaRecorder segments
+  // keep the path's format.
+  // With mode: 'pcm', .m4a/.mp4/.aac paths are encoded natively off the
+  // capture thread ({ bitrate, profile: 'lc' | 'he' | 'hev2' }) and
+  // options.outputs lists more files fed from the same capture. The 'stop'
+  // event reports { outputs: [{ filepath, dropped, maxLag }] } per file.
+  // options.vad (or silence: 'pause' | 'trim') detects speech in the PCM
+  // pipeline, tuned by vadThreshold (dBFS, -45) and vadHangover (ms, 300),
+  // and emits 'speechStart' { position } and 'speechEnd' { position, duration }.
+  // 'pause' leaves silence out of the files, 'trim' only before the first and
+  // after the last speech. In .m4a/.aac outputs 'trim' cuts at most about
+  // bufferMillis of trailing silence; .wav outputs trim all of it.
   constructor(path, options = {}) {
     super();
     this._path = path;
@@ -26,6 +43,15 @@ class SoundRecorder extends EventEmitter {
     appEventEmitter.addListener('RCTSoundRecorderModuleBridgeEvent', this._onHandleEvent);
   }
 
+  // Android only: same shape as SoundPlayer.getMetrics
+  static getMetrics(callback = _.noop) {
+    RCTSMSoundRecorder.getMetrics(callback);
+  }
+
+  static resetMetrics(callback = _.noop) {
+    RCTSMSoundRecorder.resetMetrics(callback);
+  }
+
   _onHandleEvent(res){
     const { event, data } = res
     return this.emit(event, data);
@@ -80,6 +106,28 @@ class SoundRecorder extends EventEmitter {
     return this;
   }
 
+  // Android only: with options.preroll (ms) the microphone starts here into
+  // a preallocated ring, and record() begins with the last preroll ms
+  // before it was called, e.g. for push-to-talk.
+  arm(callback = _.noop) {
+    let tasks = [];
+
+    if (this._state <= MediaStates.IDLE)
+      tasks.push((next) => {
+        this.prepare(next);
+      });
+
+    tasks.push((next) => {
+      RCTSMSoundRecorder.arm(next);
+    });
+
+    async.series(tasks, (err) => {
+      callback(err);
+    });
+
+    return this;
+  }
+
   stop(callback = _.noop) {
     if (this._state >= MediaStates.RECORDING) {
       RCTSMSoundRecorder.stop((err) => {
@@ -0,0 +1,70 @@
+package com.reactnativesoundmanagement;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-slot DSP cost on a 20ms block of noise, the budget the capture thread
+ * has to stay inside of.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DspBenchmark {
+  @Param({"48000"})
+  int sampleRate;
+
+  @Param({"1", "2"})
+  int channels;
+
+  private ShortBuffer samples;
+  private int count;
+  private LevelMeter meter;
+  private PeakReducer reducer;
+  private VoiceActivity vad;
+  private long seq;
+
+  @Setup
+  public void setup() {
+    count = sampleRate * 20 / 1000 * channels;
+    samples = ByteBuffer.allocateDirect(count * 2).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    Random random = new Random(42);
+    for (int i = 0; i < count; i++)
+      samples.put(i, (short) (random.nextGaussian() * 4000));
+
+    meter = new LevelMeter(sampleRate, channels, 50);
+    reducer = new PeakReducer(1024, Long.MAX_VALUE / 1024);
+    vad = new VoiceActivity(sampleRate, channels, VoiceActivity.DEFAULT_THRESHOLD_DB,
+        VoiceActivity.DEFAULT_HANGOVER_MS, 128, VoiceActivity.Silence.PAUSE);
+  }
+
+  @Benchmark
+  public double levelMeter() {
+    meter.onPcm(samples, count, 0);
+    return meter.rmsDb();
+  }
+
+  @Benchmark
+  public PeakReducer peakReducer() {
+    reducer.add(samples, count, channels);
+    return reducer;
+  }
+
+  @Benchmark
+  public boolean voiceActivity() {
+    vad.onPcm(samples, count, seq);
+    return vad.isActive(seq++);
+  }
+}
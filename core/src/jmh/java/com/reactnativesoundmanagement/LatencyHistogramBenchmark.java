@@ -0,0 +1,37 @@
+package com.reactnativesoundmanagement;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LatencyHistogramBenchmark {
+  private LatencyHistogram histogram;
+  private long micros;
+
+  @Setup
+  public void setup() {
+    histogram = new LatencyHistogram();
+    for (long i = 1; i < 100000; i += 7)
+      histogram.record(i);
+  }
+
+  @Benchmark
+  public void record() {
+    micros = (micros + 997) % 5000000;
+    histogram.record(micros);
+  }
+
+  @Benchmark
+  public double p99() {
+    return histogram.percentileMillis(0.99);
+  }
+}
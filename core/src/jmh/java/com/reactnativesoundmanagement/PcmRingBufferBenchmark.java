@@ -0,0 +1,71 @@
+package com.reactnativesoundmanagement;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Capture ring hot paths: one 20ms slot published and read back on the same
+ * thread, and a producer racing a consumer the way PcmCapture and WavWriter do.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PcmRingBufferBenchmark {
+  @Param({"44100"})
+  int sampleRate;
+
+  @Param({"1", "2"})
+  int channels;
+
+  private PcmRingBuffer ring;
+  private PcmRingBuffer.Cursor cursor;
+  private int slotBytes;
+
+  @Setup
+  public void setup() {
+    slotBytes = sampleRate * 20 / 1000 * 2 * channels;
+    ring = new PcmRingBuffer(100, slotBytes);
+    cursor = ring.newCursor();
+  }
+
+  @Benchmark
+  @Group("roundTrip")
+  public long publishAndRead(Blackhole bh) {
+    ring.writeSlot().putShort(0, (short) 1);
+    ring.publish(slotBytes);
+
+    long seq = cursor.next();
+    ByteBuffer view = cursor.view(seq);
+    bh.consume(view.getShort(0));
+    cursor.advance(seq);
+    return seq;
+  }
+
+  @Benchmark
+  @Group("contended")
+  public void produce() {
+    ring.writeSlot().putShort(0, (short) 1);
+    ring.publish(slotBytes);
+  }
+
+  @Benchmark
+  @Group("contended")
+  public boolean consume(Blackhole bh) {
+    long seq = cursor.next();
+    if (seq < 0)
+      return false;
+    bh.consume(cursor.view(seq).getShort(0));
+    return cursor.advance(seq);
+  }
+}
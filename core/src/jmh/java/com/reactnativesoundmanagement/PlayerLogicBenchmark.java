@@ -0,0 +1,83 @@
+package com.reactnativesoundmanagement;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Bridge-side bookkeeping run for every command or event: path rules, format
+ * mapping, state transitions and payload building.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlayerLogicBenchmark {
+  static final EventPayloads.Writer<Map<String, Object>> MAPS = new EventPayloads.Writer<Map<String, Object>>() {
+    @Override
+    public Map<String, Object> create() {
+      return new HashMap<>();
+    }
+
+    @Override
+    public void putDouble(Map<String, Object> map, String key, double value) {
+      map.put(key, value);
+    }
+
+    @Override
+    public void putInt(Map<String, Object> map, String key, int value) {
+      map.put(key, value);
+    }
+
+    @Override
+    public void putBoolean(Map<String, Object> map, String key, boolean value) {
+      map.put(key, value);
+    }
+
+    @Override
+    public void putString(Map<String, Object> map, String key, String value) {
+      map.put(key, value);
+    }
+  };
+
+  private final String path = "recordings/2016/voice_note.aac";
+  private final PlaybackState[] states = PlaybackState.values();
+
+  @Benchmark
+  public String[] pathCandidates() {
+    return PathRules.candidates("/data/user/0/com.example/files", "/storage/emulated/0", path);
+  }
+
+  @Benchmark
+  public String resourceName() {
+    return PathRules.resourceName(path);
+  }
+
+  @Benchmark
+  public RecordingFormat.Container containerFromPath() {
+    return RecordingFormat.Container.fromPath(path);
+  }
+
+  @Benchmark
+  public int transitions() {
+    int allowed = 0;
+    for (PlaybackState from : states) {
+      for (PlaybackState to : states) {
+        if (from.canMoveTo(to))
+          allowed++;
+      }
+    }
+    return allowed;
+  }
+
+  @Benchmark
+  public Map<String, Object> anchorPayload() {
+    return EventPayloads.anchor(MAPS, 12345, 240000, 987654321, 1.0f, true);
+  }
+}
@@ -0,0 +1,86 @@
+package com.reactnativesoundmanagement;
+
+/**
+ * AAC encoder settings picked from recorder options, and the ADTS framing
+ * for raw .aac output. The Android side maps these onto MediaCodecInfo
+ * profile constants and MediaMuxer.
+ */
+final class AacFormat {
+  private AacFormat() {}
+
+  static final int ADTS_HEADER_BYTES = 7;
+
+  private static final int[] SAMPLE_RATES = {
+    96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350
+  };
+
+  /**
+   * Audio object types, same values as MediaCodecInfo.CodecProfileLevel.
+   */
+  enum Profile {
+    LC(2), HE(5), HE_V2(29);
+
+    final int objectType;
+
+    Profile(int objectType) {
+      this.objectType = objectType;
+    }
+
+    static Profile fromName(String name) {
+      switch (name) {
+        case "he":
+          return HE;
+        case "hev2":
+          return HE_V2;
+        default:
+          return LC;
+      }
+    }
+  }
+
+  enum Output {
+    MP4, ADTS;
+
+    /**
+     * Encoded output a path asks for, or null if it is not an AAC file.
+     */
+    static Output fromPath(String path) {
+      switch (PathRules.extension(path)) {
+        case "m4a":
+        case "mp4":
+          return MP4;
+        case "aac":
+          return ADTS;
+        default:
+          return null;
+      }
+    }
+  }
+
+  /**
+   * ADTS sampling frequency index of sampleRate, or -1 if ADTS can't carry it.
+   */
+  static int sampleRateIndex(int sampleRate) {
+    for (int i = 0; i < SAMPLE_RATES.length; i++) {
+      if (SAMPLE_RATES[i] == sampleRate)
+        return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Writes the 7 byte ADTS header (no CRC) of one AAC-LC frame with
+   * payloadBytes of raw data into header.
+   */
+  static void adtsHeader(byte[] header, int payloadBytes, int sampleRateIndex, int channels) {
+    int frameBytes = payloadBytes + ADTS_HEADER_BYTES;
+    int profile = Profile.LC.objectType - 1;
+    header[0] = (byte) 0xFF;
+    header[1] = (byte) 0xF1; // MPEG-4, layer 0, no CRC
+    header[2] = (byte) ((profile << 6) | (sampleRateIndex << 2) | (channels >> 2));
+    header[3] = (byte) (((channels & 3) << 6) | (frameBytes >> 11));
+    header[4] = (byte) ((frameBytes >> 3) & 0xFF);
+    header[5] = (byte) (((frameBytes & 7) << 5) | 0x1F);
+    header[6] = (byte) 0xFC; // buffer fullness 0x7FF, one raw data block
+  }
+}
@@ -0,0 +1,531 @@
+package com.reactnativesoundmanagement;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Map;
+import java.util.HashMap;
+import java.net.Socket;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.URLEncoder;
+import java.net.URLDecoder;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.security.SecureRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ExecutorService;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Loopback HTTP proxy for streamed tracks. MediaPlayer is pointed at
+ * http://127.0.0.1:port/<token>/<url>; the first request downloads the whole
+ * file into a size-capped disk cache while serving it, later requests and
+ * byte ranges that are already on disk are answered from the file. Ranges far
+ * ahead of the download are passed through to the origin uncached, so is the
+ * first play of a file whose length the origin does not send. The random
+ * token keeps other apps on the device from using the proxy as a fetcher.
+ */
+class CacheProxy {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int TIMEOUT_MS = 15000;
+  // A range starting this close to the download front waits for it instead of going upstream
+  private static final long READAHEAD_BYTES = 1024 * 1024;
+
+  private final File mDir;
+  private final long mMaxBytes;
+  private final String mToken = newToken();
+  private final Map<String, Entry> mEntries = new HashMap<>();
+  private final ExecutorService mExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "SoundManagementCacheProxy");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+  private ServerSocket mServer;
+  private boolean mShutdown = false;
+
+  private static class Entry {
+    final String url;
+    final File data;
+    final File part;
+    final File meta;
+    String contentType = "audio/mpeg";
+    long length = -1; // -1 until complete if the origin sends no length
+    long downloaded = 0;
+    boolean downloading = false;
+    boolean started = false; // response headers are in
+    boolean complete = false;
+    boolean failed = false;
+    boolean uncacheable = false; // outgrew the cache without a length, e.g. a live stream
+    int readers = 0;
+
+    Entry(String url, File dir, String key) {
+      this.url = url;
+      this.data = new File(dir, key);
+      this.part = new File(dir, key + ".part");
+      this.meta = new File(dir, key + ".meta");
+    }
+  }
+
+  CacheProxy(File dir, long maxBytes) {
+    mDir = dir;
+    mMaxBytes = maxBytes;
+  }
+
+  /**
+   * Loopback URL serving the given remote URL through the cache.
+   */
+  synchronized String proxyUrl(String url) throws IOException {
+    if (mShutdown)
+      throw new IOException("Cache proxy is shut down");
+    if (mServer == null)
+      start();
+
+    return "http://127.0.0.1:" + mServer.getLocalPort() + "/" + mToken + "/" + URLEncoder.encode(url, "UTF-8");
+  }
+
+  /**
+   * Stops serving and aborts the downloads; the instance can't be restarted.
+   */
+  synchronized void shutdown() {
+    mShutdown = true;
+    if (mServer != null) {
+      try {
+        mServer.close();
+      } catch (IOException e) {}
+      mServer = null;
+    }
+    mExecutor.shutdownNow();
+  }
+
+  private void start() throws IOException {
+    if (!mDir.exists() && !mDir.mkdirs())
+      throw new IOException("Could not create cache dir " + mDir);
+
+    // Leftovers of interrupted downloads are not resumable
+    File[] files = mDir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        if (f.getName().endsWith(".part"))
+          f.delete();
+      }
+    }
+
+    final ServerSocket server = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+    mServer = server;
+    mExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        while (!server.isClosed()) {
+          try {
+            final Socket socket = server.accept();
+            mExecutor.execute(new Runnable() {
+              @Override
+              public void run() {
+                handle(socket);
+              }
+            });
+          } catch (IOException e) {
+            // closed
+          }
+        }
+      }
+    });
+  }
+
+  private Entry entry(String url) {
+    synchronized (mEntries) {
+      String key = DiskCache.key(url);
+      Entry entry = mEntries.get(key);
+      if (entry == null || (entry.failed && !entry.uncacheable)) {
+        entry = new Entry(url, mDir, key);
+        if (entry.data.exists() && entry.meta.exists())
+          readMeta(entry);
+        mEntries.put(key, entry);
+      }
+      return entry;
+    }
+  }
+
+  private void handle(Socket socket) {
+    Entry entry = null;
+    try {
+      socket.setSoTimeout(TIMEOUT_MS);
+      InputStream in = socket.getInputStream();
+      OutputStream out = socket.getOutputStream();
+
+      String requestLine = readLine(in);
+      if (requestLine == null)
+        return;
+      String[] parts = requestLine.split(" ");
+      if (parts.length < 2 || !"GET".equals(parts[0])) {
+        writeStatus(out, "405 Method Not Allowed", null);
+        return;
+      }
+
+      long rangeStart = 0, rangeEnd = -1;
+      String header;
+      while ((header = readLine(in)) != null && !header.isEmpty()) {
+        int colon = header.indexOf(':');
+        if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Range")) {
+          String value = header.substring(colon + 1).trim();
+          if (value.startsWith("bytes=")) {
+            String[] range = value.substring(6).split("-", 2);
+            try {
+              rangeStart = Long.parseLong(range[0].trim());
+              if (range.length > 1 && !range[1].trim().isEmpty())
+                rangeEnd = Long.parseLong(range[1].trim());
+            } catch (NumberFormatException e) {
+              rangeStart = 0;
+              rangeEnd = -1;
+            }
+          }
+        }
+      }
+
+      String prefix = "/" + mToken + "/";
+      if (!parts[1].startsWith(prefix)) {
+        writeStatus(out, "403 Forbidden", null);
+        return;
+      }
+
+      String url = URLDecoder.decode(parts[1].substring(prefix.length()), "UTF-8");
+      entry = entry(url);
+      synchronized (entry) {
+        entry.readers++;
+        if (!entry.complete && !entry.downloading && !entry.uncacheable)
+          startDownload(entry);
+        // Length is needed for the response headers
+        while (!entry.complete && !entry.failed && !entry.started && entry.downloading)
+          entry.wait(TIMEOUT_MS);
+      }
+
+      if (serveCached(entry, rangeStart, rangeEnd, out))
+        return;
+
+      passThrough(url, rangeStart, rangeEnd, out);
+    } catch (Exception e) {
+      // client went away or origin failed, MediaPlayer will retry or report
+    } finally {
+      if (entry != null) {
+        synchronized (entry) {
+          entry.readers--;
+        }
+      }
+      try {
+        socket.close();
+      } catch (IOException e) {}
+    }
+  }
+
+  /**
+   * @return false if the range is not (about to be) on disk
+   */
+  private boolean serveCached(Entry entry, long start, long end, OutputStream out) throws Exception {
+    long length;
+    String contentType;
+    RandomAccessFile raf;
+
+    synchronized (entry) {
+      if (entry.failed || entry.length < 0)
+        return false;
+      if (!entry.complete && start > entry.downloaded + READAHEAD_BYTES)
+        return false;
+      length = entry.length;
+      contentType = entry.contentType;
+      // Opened under the lock so the .part -> data rename cannot race it
+      File file = entry.complete ? entry.data : entry.part;
+      if (entry.complete)
+        file.setLastModified(System.currentTimeMillis());
+      raf = new RandomAccessFile(file, "r");
+    }
+
+    if (start >= length) {
+      raf.close();
+      writeStatus(out, "416 Range Not Satisfiable", "Content-Range: bytes */" + length + "\r\n");
+      return true;
+    }
+    if (end < 0 || end >= length)
+      end = length - 1;
+
+    boolean partial = start > 0 || end < length - 1;
+    StringBuilder headers = new StringBuilder();
+    headers.append("Content-Type: ").append(contentType).append("\r\n");
+    headers.append("Content-Length: ").append(end - start + 1).append("\r\n");
+    headers.append("Accept-Ranges: bytes\r\n");
+    if (partial)
+      headers.append("Content-Range: bytes ").append(start).append('-').append(end).append('/').append(length).append("\r\n");
+    try {
+      writeStatus(out, partial ? "206 Partial Content" : "200 OK", headers.toString());
+
+      FileChannel channel = raf.getChannel();
+      WritableByteChannel target = Channels.newChannel(out);
+      long position = start;
+      while (position <= end) {
+        long available;
+        synchronized (entry) {
+          while (!entry.complete && !entry.failed && entry.downloaded <= position)
+            entry.wait(TIMEOUT_MS);
+          if (entry.failed && entry.downloaded <= position)
+            throw new IOException("Download failed");
+          available = entry.complete ? length : entry.downloaded;
+        }
+        long count = Math.min(end + 1, available) - position;
+        position += channel.transferTo(position, count, target);
+      }
+      out.flush();
+    } finally {
+      raf.close();
+    }
+    return true;
+  }
+
+  private void passThrough(String url, long start, long end, OutputStream out) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setConnectTimeout(TIMEOUT_MS);
+    connection.setReadTimeout(TIMEOUT_MS);
+    if (start > 0 || end >= 0)
+      connection.setRequestProperty("Range", "bytes=" + start + "-" + (end >= 0 ? end : ""));
+
+    try {
+      int status = connection.getResponseCode();
+      StringBuilder headers = new StringBuilder();
+      String contentType = connection.getContentType();
+      String contentRange = connection.getHeaderField("Content-Range");
+      long length = contentLength(connection);
+      if (contentType != null)
+        headers.append("Content-Type: ").append(contentType).append("\r\n");
+      if (length >= 0)
+        headers.append("Content-Length: ").append(length).append("\r\n");
+      if (contentRange != null)
+        headers.append("Content-Range: ").append(contentRange).append("\r\n");
+      writeStatus(out, status + " " + connection.getResponseMessage(), headers.toString());
+
+      InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+      if (in == null)
+        return;
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = in.read(buffer)) != -1)
+        out.write(buffer, 0, read);
+      out.flush();
+      in.close();
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  // Caller holds the entry lock
+  private void startDownload(final Entry entry) {
+    entry.downloading = true;
+    entry.started = false;
+    entry.downloaded = 0;
+    mExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        download(entry);
+      }
+    });
+  }
+
+  private void download(Entry entry) {
+    HttpURLConnection connection = null;
+    RandomAccessFile raf = null;
+    try {
+      connection = (HttpURLConnection) new URL(entry.url).openConnection();
+      connection.setConnectTimeout(TIMEOUT_MS);
+      connection.setReadTimeout(TIMEOUT_MS);
+      if (connection.getResponseCode() != HttpURLConnection.HTTP_OK)
+        throw new IOException("HTTP " + connection.getResponseCode());
+
+      long length = contentLength(connection);
+      raf = new RandomAccessFile(entry.part, "rw");
+      synchronized (entry) {
+        entry.length = length;
+        entry.started = true;
+        if (connection.getContentType() != null)
+          entry.contentType = connection.getContentType();
+        entry.notifyAll();
+      }
+
+      FileChannel channel = raf.getChannel();
+      InputStream in = connection.getInputStream();
+      byte[] buffer = new byte[BUFFER_SIZE];
+      ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+      long position = 0;
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        if (Thread.currentThread().isInterrupted())
+          throw new IOException("Cache proxy is shut down");
+        if (length < 0 && position + read > mMaxBytes) {
+          synchronized (entry) {
+            entry.uncacheable = true;
+          }
+          throw new IOException("No length and larger than the cache");
+        }
+        wrapped.clear().limit(read);
+        while (wrapped.hasRemaining())
+          position += channel.write(wrapped, position);
+        synchronized (entry) {
+          entry.downloaded = position;
+          entry.notifyAll();
+        }
+      }
+      in.close();
+      channel.force(false);
+
+      if (length >= 0 && position != length)
+        throw new IOException("Short read " + position + "/" + length);
+
+      raf.close();
+      raf = null;
+      if (length < 0) {
+        synchronized (entry) {
+          entry.length = position;
+        }
+      }
+      writeMeta(entry);
+
+      synchronized (entry) {
+        if (!entry.part.renameTo(entry.data))
+          throw new IOException("Could not move " + entry.part);
+        entry.complete = true;
+        entry.downloading = false;
+        entry.notifyAll();
+      }
+      evict();
+    } catch (Exception e) {
+      entry.part.delete();
+      synchronized (entry) {
+        entry.failed = true;
+        entry.downloading = false;
+        entry.notifyAll();
+      }
+    } finally {
+      if (raf != null) {
+        try { raf.close(); } catch (IOException e) {}
+      }
+      if (connection != null)
+        connection.disconnect();
+    }
+  }
+
+  /**
+   * Drops least recently served files until the cache fits, sparing files
+   * that are being read right now.
+   */
+  private void evict() {
+    DiskCache.trim(mDir, mMaxBytes, new DiskCache.Policy() {
+      @Override
+      public boolean evictable(File file) {
+        String name = file.getName();
+        return !name.endsWith(".part") && !name.endsWith(".meta") && !inUse(name);
+      }
+
+      @Override
+      public long evicted(File file) {
+        synchronized (mEntries) {
+          mEntries.remove(file.getName());
+        }
+        File meta = new File(mDir, file.getName() + ".meta");
+        long bytes = meta.length();
+        meta.delete();
+        return bytes;
+      }
+    });
+  }
+
+  private boolean inUse(String key) {
+    Entry entry;
+    synchronized (mEntries) {
+      entry = mEntries.get(key);
+    }
+    if (entry == null)
+      return false;
+    synchronized (entry) {
+      return entry.readers > 0 || entry.downloading;
+    }
+  }
+
+  private void writeMeta(Entry entry) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(entry.meta, "rw");
+    try {
+      raf.setLength(0);
+      raf.writeLong(entry.length);
+      raf.writeUTF(entry.contentType);
+    } finally {
+      raf.close();
+    }
+  }
+
+  private void readMeta(Entry entry) {
+    try {
+      RandomAccessFile raf = new RandomAccessFile(entry.meta, "r");
+      try {
+        long length = raf.readLong();
+        String contentType = raf.readUTF();
+        if (length != entry.data.length())
+          return;
+        entry.length = length;
+        entry.downloaded = length;
+        entry.contentType = contentType;
+        entry.complete = true;
+      } finally {
+        raf.close();
+      }
+    } catch (IOException e) {
+      entry.data.delete();
+      entry.meta.delete();
+    }
+  }
+
+  private static long contentLength(HttpURLConnection connection) {
+    String value = connection.getHeaderField("Content-Length");
+    if (value == null)
+      return -1;
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static void writeStatus(OutputStream out, String status, String headers) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    sb.append("HTTP/1.1 ").append(status).append("\r\n");
+    if (headers != null)
+      sb.append(headers);
+    sb.append("Connection: close\r\n\r\n");
+    out.write(sb.toString().getBytes("ISO-8859-1"));
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    int c;
+    while ((c = in.read()) != -1) {
+      if (c == '\n')
+        return sb.toString();
+      if (c != '\r')
+        sb.append((char) c);
+    }
+    return sb.length() > 0 ? sb.toString() : null;
+  }
+
+  private static String newToken() {
+    byte[] bytes = new byte[16];
+    new SecureRandom().nextBytes(bytes);
+    StringBuilder sb = new StringBuilder();
+    for (byte b : bytes)
+      sb.append(String.format("%02x", b));
+    return sb.toString();
+  }
+}
@@ -0,0 +1,80 @@
+package com.reactnativesoundmanagement;
+
+import java.io.File;
+import java.security.MessageDigest;
+
+/**
+ * File naming and size trimming shared by the on-disk caches (stream proxy,
+ * artwork): one file per URL, named by its hash, dropped least recently used
+ * first.
+ */
+final class DiskCache {
+  private DiskCache() {}
+
+  /**
+   * Decides what trimming may delete, for caches that keep companion files
+   * or files in use next to the cached ones.
+   */
+  interface Policy {
+    boolean evictable(File file);
+
+    /**
+     * Called after file was deleted; cleans up what belongs to it and
+     * returns the bytes that freed on top of the file itself.
+     */
+    long evicted(File file);
+  }
+
+  /**
+   * File name of url in a cache directory.
+   */
+  static String key(String url) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("MD5");
+      byte[] hash = digest.digest(url.getBytes("UTF-8"));
+      StringBuilder sb = new StringBuilder();
+      for (byte b : hash)
+        sb.append(String.format("%02x", b));
+      return sb.toString();
+    } catch (Exception e) {
+      return Integer.toHexString(url.hashCode());
+    }
+  }
+
+  /**
+   * Deletes the least recently modified files of dir until it holds at most
+   * maxBytes, or nothing more may go.
+   *
+   * @param policy null if every file may be deleted
+   */
+  static void trim(File dir, long maxBytes, Policy policy) {
+    File[] files = dir.listFiles();
+    if (files == null)
+      return;
+
+    long total = 0;
+    for (File f : files)
+      total += f.length();
+
+    while (total > maxBytes) {
+      File oldest = null;
+      for (File f : files) {
+        if (f == null || (policy != null && !policy.evictable(f)))
+          continue;
+        if (oldest == null || f.lastModified() < oldest.lastModified())
+          oldest = f;
+      }
+      if (oldest == null)
+        return;
+
+      total -= oldest.length();
+      oldest.delete();
+      if (policy != null)
+        total -= policy.evicted(oldest);
+      for (int i = 0; i < files.length; i++) {
+        if (files[i] == oldest)
+          files[i] = null;
+      }
+    }
+  }
+}
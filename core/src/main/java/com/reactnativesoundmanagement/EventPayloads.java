@@ -0,0 +1,75 @@
+package com.reactnativesoundmanagement;
+
+/**
+ * Builds the data maps of the high-rate events. The map type is abstracted
+ * behind {@link Writer} so the same code fills WritableMaps on a device and
+ * plain maps on the JVM.
+ */
+final class EventPayloads {
+  private EventPayloads() {}
+
+  interface Writer<M> {
+    M create();
+    void putDouble(M map, String key, double value);
+    void putInt(M map, String key, int value);
+    void putBoolean(M map, String key, boolean value);
+    void putString(M map, String key, String value);
+  }
+
+  static <M> M position(Writer<M> writer, double position, double duration) {
+    M data = writer.create();
+    writer.putDouble(data, "position", position);
+    writer.putDouble(data, "duration", duration);
+    return data;
+  }
+
+  /**
+   * Position anchor JS extrapolates from: position + (now - timestamp) * rate.
+   */
+  static <M> M anchor(Writer<M> writer, double position, double duration, double timestamp,
+      float rate, boolean playing) {
+    M data = position(writer, position, duration);
+    writer.putDouble(data, "timestamp", timestamp);
+    writer.putDouble(data, "rate", playing ? rate : 0);
+    writer.putBoolean(data, "playing", playing);
+    return data;
+  }
+
+  static <M> M recordProgress(Writer<M> writer, double position) {
+    M data = writer.create();
+    writer.putDouble(data, "position", position);
+    return data;
+  }
+
+  static <M> M meter(Writer<M> writer, double rmsDb, double peakDb) {
+    M data = writer.create();
+    writer.putDouble(data, "rms", rmsDb);
+    writer.putDouble(data, "peak", peakDb);
+    return data;
+  }
+
+  /**
+   * A finished file of a segmented recording.
+   */
+  static <M> M segment(Writer<M> writer, String path, int index, double bytes, double duration) {
+    M data = writer.create();
+    writer.putString(data, "filepath", path);
+    writer.putInt(data, "index", index);
+    writer.putDouble(data, "bytes", bytes);
+    writer.putDouble(data, "duration", duration);
+    return data;
+  }
+
+  static <M> M speechStart(Writer<M> writer, double position) {
+    M data = writer.create();
+    writer.putDouble(data, "position", position);
+    return data;
+  }
+
+  static <M> M speechEnd(Writer<M> writer, double position, double duration) {
+    M data = writer.create();
+    writer.putDouble(data, "position", position);
+    writer.putDouble(data, "duration", duration);
+    return data;
+  }
+}
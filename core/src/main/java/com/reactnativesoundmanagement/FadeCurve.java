@@ -0,0 +1,73 @@
+package com.reactnativesoundmanagement;
+
+/**
+ * Gain curves of a crossfade, over progress t in 0..1. The outgoing track
+ * follows {@link #fadeOut}, the incoming one {@link #fadeIn}.
+ */
+enum FadeCurve {
+  LINEAR {
+    @Override
+    double fadeIn(double t) {
+      return t;
+    }
+  },
+  /** Constant total power for uncorrelated material, no dip in the middle. */
+  EQUAL_POWER {
+    @Override
+    double fadeIn(double t) {
+      return Math.sin(t * Math.PI / 2);
+    }
+
+    @Override
+    double fadeOut(double t) {
+      return Math.cos(t * Math.PI / 2);
+    }
+  },
+  /** Smoothstep: gentle at both ends. */
+  S_CURVE {
+    @Override
+    double fadeIn(double t) {
+      return t * t * (3 - 2 * t);
+    }
+  };
+
+  abstract double fadeIn(double t);
+
+  double fadeOut(double t) {
+    return 1 - fadeIn(t);
+  }
+
+  static FadeCurve fromName(String name) {
+    switch (name) {
+      case "equalPower":
+        return EQUAL_POWER;
+      case "sCurve":
+        return S_CURVE;
+      default:
+        return LINEAR;
+    }
+  }
+
+  /**
+   * Evenly spaced progress points 0..1, for curve tables.
+   */
+  static float[] times(int points) {
+    float[] times = new float[points];
+    for (int i = 0; i < points; i++)
+      times[i] = (float) i / (points - 1);
+    times[points - 1] = 1f;
+    return times;
+  }
+
+  /**
+   * The curve sampled at times, clamped to 0..1.
+   */
+  float[] gains(float[] times, boolean in) {
+    float[] gains = new float[times.length];
+    for (int i = 0; i < times.length; i++) {
+      double gain = in ? fadeIn(times[i]) : fadeOut(times[i]);
+      gains[i] = (float) Math.max(0, Math.min(1, gain));
+    }
+    return gains;
+  }
+}
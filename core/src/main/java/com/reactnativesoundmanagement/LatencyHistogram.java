@@ -0,0 +1,76 @@
+package com.reactnativesoundmanagement;
+
+/**
+ * Fixed-size log-bucketed latency histogram. Buckets grow by 10% from 10us
+ * up to ~10 minutes, so percentiles are accurate to roughly 10% with a few
+ * hundred longs of state and no allocation per sample.
+ */
+class LatencyHistogram {
+  private static final double MIN_MICROS = 10.0;
+  private static final double GROWTH = 1.1;
+  private static final double LOG_GROWTH = Math.log(GROWTH);
+  private static final int BUCKETS = 190;
+
+  private final long[] mCounts = new long[BUCKETS];
+  private long mCount = 0;
+  private long mSumMicros = 0;
+  private long mMaxMicros = 0;
+
+  synchronized void record(long micros) {
+    if (micros < 0)
+      micros = 0;
+    mCounts[bucket(micros)]++;
+    mCount++;
+    mSumMicros += micros;
+    if (micros > mMaxMicros)
+      mMaxMicros = micros;
+  }
+
+  synchronized long count() {
+    return mCount;
+  }
+
+  synchronized double meanMillis() {
+    return mCount == 0 ? 0 : mSumMicros / 1000.0 / mCount;
+  }
+
+  synchronized double maxMillis() {
+    return mMaxMicros / 1000.0;
+  }
+
+  /**
+   * Upper bound of the bucket holding the given quantile (0..1), in ms.
+   */
+  synchronized double percentileMillis(double quantile) {
+    if (mCount == 0)
+      return 0;
+
+    long rank = (long) Math.ceil(quantile * mCount);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += mCounts[i];
+      if (seen >= Math.max(1, rank))
+        return Math.min(upperBound(i), mMaxMicros) / 1000.0;
+    }
+    return mMaxMicros / 1000.0;
+  }
+
+  synchronized void reset() {
+    for (int i = 0; i < BUCKETS; i++)
+      mCounts[i] = 0;
+    mCount = 0;
+    mSumMicros = 0;
+    mMaxMicros = 0;
+  }
+
+  private static int bucket(long micros) {
+    if (micros <= MIN_MICROS)
+      return 0;
+    int bucket = 1 + (int) (Math.log(micros / MIN_MICROS) / LOG_GROWTH);
+    return Math.min(bucket, BUCKETS - 1);
+  }
+
+  private static double upperBound(int bucket) {
+    return MIN_MICROS * Math.pow(GROWTH, bucket);
+  }
+}
@@ -0,0 +1,83 @@
+package com.reactnativesoundmanagement;
+
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RMS and peak level of the captured signal, computed inline on the capture
+ * thread over fixed windows. Readers get the last complete window's RMS and
+ * the highest peak since their previous read; nothing is allocated per frame.
+ */
+class LevelMeter implements PcmListener {
+  static final double SILENCE_DB = -160.0;
+
+  private final int mWindowSamples;
+  private double mSumSquares = 0;
+  private int mWindowPeak = 0;
+  private int mCount = 0;
+  private volatile double mRms = 0;
+  private final AtomicInteger mPeakSinceRead = new AtomicInteger(0);
+
+  /**
+   * @param windowMillis length of one RMS window
+   */
+  LevelMeter(int sampleRate, int channels, int windowMillis) {
+    mWindowSamples = Math.max(1, sampleRate * channels * windowMillis / 1000);
+  }
+
+  @Override
+  public void onPcm(ShortBuffer samples, int count, long seq) {
+    double sum = mSumSquares;
+    int peak = mWindowPeak;
+    int n = mCount;
+
+    for (int i = 0; i < count; i++) {
+      int sample = samples.get(i);
+      int abs = sample < 0 ? -sample : sample;
+      sum += (double) sample * sample;
+      if (abs > peak)
+        peak = abs;
+
+      if (++n == mWindowSamples) {
+        mRms = Math.sqrt(sum / n);
+        publishPeak(peak);
+        sum = 0;
+        peak = 0;
+        n = 0;
+      }
+    }
+
+    mSumSquares = sum;
+    mWindowPeak = peak;
+    mCount = n;
+  }
+
+  private void publishPeak(int peak) {
+    int current;
+    do {
+      current = mPeakSinceRead.get();
+      if (peak <= current)
+        return;
+    } while (!mPeakSinceRead.compareAndSet(current, peak));
+  }
+
+  /**
+   * RMS of the last complete window in dBFS.
+   */
+  double rmsDb() {
+    return toDb(mRms);
+  }
+
+  /**
+   * Highest peak in dBFS since the previous call.
+   */
+  double readPeakDb() {
+    return toDb(mPeakSinceRead.getAndSet(0));
+  }
+
+  static double toDb(double amplitude) {
+    if (amplitude <= 0)
+      return SILENCE_DB;
+    return Math.max(SILENCE_DB, 20.0 * Math.log10(amplitude / 32768.0));
+  }
+}
@@ -0,0 +1,37 @@
+package com.reactnativesoundmanagement;
+
+/**
+ * Platform independent half of path resolution: how a path from JS maps to a
+ * raw resource name and which files are probed for it, in order.
+ */
+final class PathRules {
+  private PathRules() {}
+
+  /**
+   * Name of the "raw" resource a path refers to: the path with its extension
+   * stripped.
+   */
+  static String resourceName(String path) {
+    int dot = path.lastIndexOf('.');
+    return dot != -1 ? path.substring(0, dot) : path;
+  }
+
+  /**
+   * Files to probe for a path: app data directory, sdcard, then the path
+   * itself.
+   */
+  static String[] candidates(String filesDir, String externalDir, String path) {
+    return new String[] {
+      filesDir + "/" + path,
+      externalDir + "/" + path,
+      path
+    };
+  }
+
+  /**
+   * Extension of the path, used to pick recording formats.
+   */
+  static String extension(String path) {
+    return path.substring(path.lastIndexOf('.') + 1);
+  }
+}
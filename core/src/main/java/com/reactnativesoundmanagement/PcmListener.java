@@ -0,0 +1,16 @@
+package com.reactnativesoundmanagement;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Inline consumer of captured PCM. Called on the capture thread before the
+ * slot is published, so implementations must not block or allocate.
+ */
+interface PcmListener {
+  /**
+   * @param samples interleaved samples, read with absolute gets only
+   * @param count number of valid samples
+   * @param seq ring sequence the slot will be published as
+   */
+  void onPcm(ShortBuffer samples, int count, long seq);
+}
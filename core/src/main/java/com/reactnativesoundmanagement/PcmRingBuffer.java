@@ -0,0 +1,164 @@
+package com.reactnativesoundmanagement;
+
+import java.nio.ByteOrder;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Single-producer, multi-consumer ring of preallocated direct buffers holding
+ * 16 bit PCM. The producer never waits: a consumer that falls more than a
+ * ring behind loses the overwritten slots and sees them counted as dropped.
+ * Each consumer reads through its own {@link Cursor}, nothing is allocated
+ * after construction.
+ */
+class PcmRingBuffer {
+  private final ByteBuffer[] mSlots;
+  private final ShortBuffer[] mSamples;
+  private final int[] mLengths;
+  private final int mMask;
+  private final int mSlotBytes;
+  private volatile long mWriteSeq = 0; // slots published so far
+
+  /**
+   * @param slotCount rounded up to a power of two
+   */
+  PcmRingBuffer(int slotCount, int slotBytes) {
+    int capacity = Integer.highestOneBit(Math.max(2, slotCount) - 1) << 1;
+    mSlots = new ByteBuffer[capacity];
+    mSamples = new ShortBuffer[capacity];
+    mLengths = new int[capacity];
+    mMask = capacity - 1;
+    mSlotBytes = slotBytes;
+
+    for (int i = 0; i < capacity; i++) {
+      mSlots[i] = ByteBuffer.allocateDirect(slotBytes).order(ByteOrder.LITTLE_ENDIAN);
+      mSamples[i] = mSlots[i].asShortBuffer();
+    }
+  }
+
+  int capacity() {
+    return mSlots.length;
+  }
+
+  int slotBytes() {
+    return mSlotBytes;
+  }
+
+  long writeSequence() {
+    return mWriteSeq;
+  }
+
+  /**
+   * Producer only: the slot the next {@link #publish} makes visible.
+   * Its position stays 0, write with absolute access or a native read.
+   */
+  ByteBuffer writeSlot() {
+    return mSlots[(int) mWriteSeq & mMask];
+  }
+
+  /**
+   * Producer only: samples view of {@link #writeSlot()}.
+   */
+  ShortBuffer writeSamples() {
+    return mSamples[(int) mWriteSeq & mMask];
+  }
+
+  /**
+   * Producer only: makes the write slot, filled with bytes bytes, visible.
+   */
+  void publish(int bytes) {
+    long seq = mWriteSeq;
+    mLengths[(int) seq & mMask] = bytes;
+    mWriteSeq = seq + 1;
+  }
+
+  /**
+   * True while the producer has not started overwriting the slot of seq.
+   */
+  boolean isValid(long seq) {
+    return mWriteSeq - seq < mSlots.length;
+  }
+
+  int length(long seq) {
+    return mLengths[(int) seq & mMask];
+  }
+
+  /**
+   * Cursor starting at the next published slot.
+   */
+  Cursor newCursor() {
+    return new Cursor(mWriteSeq);
+  }
+
+  /**
+   * Cursor starting at the oldest slot still held, at most back slots back.
+   */
+  Cursor newCursor(int back) {
+    long write = mWriteSeq;
+    long start = Math.max(0, write - Math.min(back, mSlots.length - 1));
+    return new Cursor(start);
+  }
+
+  class Cursor {
+    private final ByteBuffer[] mViews;
+    private long mNext;
+    private long mDropped = 0;
+
+    private Cursor(long start) {
+      mNext = start;
+      mViews = new ByteBuffer[mSlots.length];
+      for (int i = 0; i < mSlots.length; i++)
+        mViews[i] = mSlots[i].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Sequence of the next readable slot, or -1 if the consumer is caught up.
+     * Skips slots the producer already overwrote.
+     */
+    long next() {
+      long write = mWriteSeq;
+      if (mNext >= write)
+        return -1;
+
+      long oldest = write - mSlots.length + 1;
+      if (mNext < oldest) {
+        mDropped += oldest - mNext;
+        mNext = oldest;
+      }
+      return mNext;
+    }
+
+    /**
+     * This cursor's view of the slot of seq, position 0 and limit its length.
+     */
+    ByteBuffer view(long seq) {
+      ByteBuffer view = mViews[(int) seq & mMask];
+      view.clear();
+      view.limit(mLengths[(int) seq & mMask]);
+      return view;
+    }
+
+    /**
+     * Finish reading seq. Returns false if the producer overwrote it while it
+     * was being read, in which case the data must be discarded.
+     */
+    boolean advance(long seq) {
+      mNext = seq + 1;
+      if (isValid(seq))
+        return true;
+      mDropped++;
+      return false;
+    }
+
+    /**
+     * Slots published but not yet read.
+     */
+    long lag() {
+      return mWriteSeq - mNext;
+    }
+
+    long dropped() {
+      return mDropped;
+    }
+  }
+}
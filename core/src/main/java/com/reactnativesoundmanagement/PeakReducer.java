@@ -0,0 +1,63 @@
+package com.reactnativesoundmanagement;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Streams interleaved 16 bit samples into a fixed number of min/max buckets.
+ * Frames are spread over the buckets by the expected total, anything past the
+ * estimate lands in the last bucket. A bucket's range starts at its first
+ * sample, buckets no frame reached stay 0.
+ */
+class PeakReducer {
+  private final short[] mMin;
+  private final short[] mMax;
+  private final long mTotalFrames;
+  private long mFrame = 0;
+  private int mSeeded = -1; // buckets fill in order, those up to here have a sample
+
+  PeakReducer(int buckets, long totalFrames) {
+    mMin = new short[buckets];
+    mMax = new short[buckets];
+    mTotalFrames = Math.max(1, totalFrames);
+  }
+
+  /**
+   * @param samples interleaved samples from position 0, read with absolute gets
+   * @param count samples in the buffer (all channels)
+   */
+  void add(ShortBuffer samples, int count, int channels) {
+    int buckets = mMin.length;
+    int frames = count / channels;
+    int i = 0;
+
+    for (int f = 0; f < frames; f++, mFrame++) {
+      int bucket = (int) Math.min(buckets - 1, mFrame * buckets / mTotalFrames);
+      if (bucket > mSeeded) {
+        mMin[bucket] = mMax[bucket] = samples.get(i);
+        mSeeded = bucket;
+      }
+      short min = mMin[bucket], max = mMax[bucket];
+      for (int c = 0; c < channels; c++, i++) {
+        short sample = samples.get(i);
+        if (sample < min)
+          min = sample;
+        if (sample > max)
+          max = sample;
+      }
+      mMin[bucket] = min;
+      mMax[bucket] = max;
+    }
+  }
+
+  int buckets() {
+    return mMin.length;
+  }
+
+  short[] min() {
+    return mMin;
+  }
+
+  short[] max() {
+    return mMax;
+  }
+}
@@ -0,0 +1,190 @@
+package com.reactnativesoundmanagement;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Random;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Playlist order, shuffle and repeat rules for the native queue. Items keep
+ * the index they were added with; shuffle only changes the play order, which
+ * is a permutation of those indexes walked by a position.
+ */
+class PlayQueue {
+  enum Repeat {
+    NONE, ONE, ALL;
+
+    static Repeat fromName(String name) {
+      switch (name) {
+        case "one":
+          return ONE;
+        case "all":
+          return ALL;
+        default:
+          return NONE;
+      }
+    }
+  }
+
+  static final class Item {
+    final String path;
+    final Map<String, String> meta; // title, singer, image_url... for the notification
+
+    Item(String path, Map<String, String> meta) {
+      this.path = path;
+      this.meta = meta;
+    }
+  }
+
+  private final List<Item> mItems = new ArrayList<>();
+  private final List<Integer> mOrder = new ArrayList<>();
+  private final Random mRandom;
+  private int mPosition = -1;
+  private boolean mShuffle = false;
+  private Repeat mRepeat = Repeat.NONE;
+
+  PlayQueue() {
+    this(new Random());
+  }
+
+  PlayQueue(Random random) {
+    mRandom = random;
+  }
+
+  /**
+   * Replaces the items and makes startIndex current.
+   */
+  void set(List<Item> items, int startIndex) {
+    mItems.clear();
+    mItems.addAll(items);
+    mOrder.clear();
+    for (int i = 0; i < mItems.size(); i++)
+      mOrder.add(i);
+    mPosition = mItems.isEmpty() ? -1 : Math.max(0, Math.min(startIndex, mItems.size() - 1));
+    if (mShuffle)
+      shuffleAroundCurrent();
+  }
+
+  /**
+   * Adds items at the end of the list; when shuffling they are spread over
+   * the part of the order not played yet.
+   */
+  void append(List<Item> items) {
+    for (Item item : items) {
+      int index = mItems.size();
+      mItems.add(item);
+      if (mShuffle && mPosition >= 0) {
+        int from = mPosition + 1;
+        mOrder.add(from + mRandom.nextInt(mOrder.size() - from + 1), index);
+      } else {
+        mOrder.add(index);
+      }
+    }
+    if (mPosition < 0 && !mItems.isEmpty())
+      mPosition = 0;
+  }
+
+  int size() {
+    return mItems.size();
+  }
+
+  boolean isEmpty() {
+    return mItems.isEmpty();
+  }
+
+  Item item(int index) {
+    return mItems.get(index);
+  }
+
+  /**
+   * Item index of the current entry, or -1.
+   */
+  int currentIndex() {
+    return mPosition < 0 ? -1 : mOrder.get(mPosition);
+  }
+
+  Item current() {
+    return mPosition < 0 ? null : mItems.get(mOrder.get(mPosition));
+  }
+
+  Repeat repeat() {
+    return mRepeat;
+  }
+
+  void setRepeat(Repeat repeat) {
+    mRepeat = repeat;
+  }
+
+  boolean shuffle() {
+    return mShuffle;
+  }
+
+  /**
+   * Turning shuffle on keeps the current item and shuffles the others after
+   * it; turning it off goes back to list order at the current item.
+   */
+  void setShuffle(boolean shuffle) {
+    if (shuffle == mShuffle)
+      return;
+    mShuffle = shuffle;
+
+    if (shuffle) {
+      shuffleAroundCurrent();
+    } else {
+      int current = currentIndex();
+      mOrder.clear();
+      for (int i = 0; i < mItems.size(); i++)
+        mOrder.add(i);
+      mPosition = current;
+    }
+  }
+
+  /**
+   * Item index that plays when the current one finishes, or -1 to stop.
+   */
+  int completionIndex() {
+    if (mPosition < 0)
+      return -1;
+    if (mRepeat == Repeat.ONE)
+      return currentIndex();
+    return skipIndex(1);
+  }
+
+  /**
+   * Item index of a skip by delta entries in play order, wrapping only with
+   * repeat all; -1 past either end.
+   */
+  int skipIndex(int delta) {
+    if (mPosition < 0)
+      return -1;
+
+    int position = mPosition + delta;
+    if (position < 0 || position >= mOrder.size()) {
+      if (mRepeat != Repeat.ALL)
+        return -1;
+      position = ((position % mOrder.size()) + mOrder.size()) % mOrder.size();
+    }
+    return mOrder.get(position);
+  }
+
+  /**
+   * Makes the item with this index current.
+   */
+  void moveTo(int index) {
+    if (index < 0 || index >= mItems.size())
+      throw new IndexOutOfBoundsException("No queue item " + index);
+    mPosition = mOrder.indexOf(index);
+  }
+
+  private void shuffleAroundCurrent() {
+    if (mPosition < 0)
+      return;
+
+    int current = mOrder.get(mPosition);
+    mOrder.remove(mPosition);
+    Collections.shuffle(mOrder, mRandom);
+    mOrder.add(0, current);
+    mPosition = 0;
+  }
+}
@@ -0,0 +1,44 @@
+package com.reactnativesoundmanagement;
+
+/**
+ * Lifecycle of one player, named as in app/MediaStates.js. The
+ * transition table is the single place that decides which commands make
+ * sense in which state. SEEKING only exists in JS: a seek in flight
+ * doesn't change which commands the native player accepts.
+ */
+enum PlaybackState {
+  DESTROYED,
+  ERROR,
+  IDLE,
+  PREPARING,
+  PREPARED,
+  PLAYING,
+  PAUSED;
+
+  /**
+   * Whether a player in this state may move to next. Anything may be
+   * destroyed or fail; nothing leaves DESTROYED.
+   */
+  boolean canMoveTo(PlaybackState next) {
+    if (this == DESTROYED)
+      return false;
+    if (next == DESTROYED || next == ERROR || next == IDLE)
+      return true;
+
+    switch (this) {
+      case ERROR:
+      case IDLE:
+        return next == PREPARING;
+      case PREPARING:
+        return next == PREPARED;
+      case PREPARED:
+        return next == PLAYING || next == PREPARING;
+      case PLAYING:
+        return next == PAUSED || next == PREPARED || next == PREPARING;
+      case PAUSED:
+        return next == PLAYING || next == PREPARED || next == PREPARING;
+      default:
+        return false;
+    }
+  }
+}
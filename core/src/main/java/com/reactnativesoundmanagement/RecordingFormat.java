@@ -0,0 +1,57 @@
+package com.reactnativesoundmanagement;
+
+/**
+ * Container and encoder picked from the format names JS passes to the
+ * recorder, or from the output file extension. The Android side maps these
+ * onto MediaRecorder constants.
+ */
+final class RecordingFormat {
+  private RecordingFormat() {}
+
+  enum Container {
+    AAC_ADTS, MPEG_4, WEBM, AMR_WB, DEFAULT;
+
+    static Container fromName(String name) {
+      switch (name) {
+        case "aac":
+          return AAC_ADTS;
+        case "mp4":
+          return MPEG_4;
+        case "webm":
+        case "ogg":
+          return WEBM;
+        case "amr":
+          return AMR_WB;
+        default:
+          return DEFAULT;
+      }
+    }
+
+    static Container fromPath(String path) {
+      return fromName(PathRules.extension(path));
+    }
+  }
+
+  enum Encoder {
+    HE_AAC, VORBIS, AMR_WB, DEFAULT;
+
+    static Encoder fromName(String name) {
+      switch (name) {
+        case "aac":
+        case "mp4":
+          return HE_AAC;
+        case "webm":
+        case "ogg":
+          return VORBIS;
+        case "amr":
+          return AMR_WB;
+        default:
+          return DEFAULT;
+      }
+    }
+
+    static Encoder fromPath(String path) {
+      return fromName(PathRules.extension(path));
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.reactnativesoundmanagement;
+
+/**
+ * File names and rotation limits of a segmented recording. Segment i of
+ * "talk.m4a" is "talk_000.m4a", "talk_001.m4a"... A limit of 0 means no limit
+ * of that kind.
+ */
+final class SegmentPlan {
+  final long maxMillis;
+  final long maxBytes;
+  private final String mBase;
+  private final String mExtension;
+
+  SegmentPlan(String path, long maxMillis, long maxBytes) {
+    int dot = path.lastIndexOf('.');
+    int slash = path.lastIndexOf('/');
+    if (dot > slash) {
+      mBase = path.substring(0, dot);
+      mExtension = path.substring(dot);
+    } else {
+      mBase = path;
+      mExtension = "";
+    }
+    this.maxMillis = Math.max(0, maxMillis);
+    this.maxBytes = Math.max(0, maxBytes);
+  }
+
+  private SegmentPlan(String base, String extension, long maxMillis, long maxBytes) {
+    mBase = base;
+    mExtension = extension;
+    this.maxMillis = maxMillis;
+    this.maxBytes = maxBytes;
+  }
+
+  boolean isEnabled() {
+    return maxMillis > 0 || maxBytes > 0;
+  }
+
+  /**
+   * Same plan writing files with another extension, e.g. "wav".
+   */
+  SegmentPlan withExtension(String extension) {
+    return new SegmentPlan(mBase, "." + extension, maxMillis, maxBytes);
+  }
+
+  String path(int index) {
+    String number = Integer.toString(index);
+    while (number.length() < 3)
+      number = "0" + number;
+    return mBase + "_" + number + mExtension;
+  }
+
+  /**
+   * Bytes after which a stream of byteRate rotates: the tighter of both
+   * limits, rounded down to whole frames; 0 if there is no limit.
+   */
+  long byteLimit(long byteRate, int frameBytes) {
+    long limit = maxBytes;
+    if (maxMillis > 0) {
+      long timeBytes = maxMillis * byteRate / 1000;
+      limit = limit > 0 ? Math.min(limit, timeBytes) : timeBytes;
+    }
+    if (limit <= 0)
+      return 0;
+    return Math.max(frameBytes, limit - limit % frameBytes);
+  }
+}
@@ -0,0 +1,124 @@
+package com.reactnativesoundmanagement;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Energy based voice activity detector, run inline on the capture thread.
+ * A slot whose mean square level is over the threshold starts or continues
+ * speech; speech ends after hangover ms below it, so pauses between words
+ * stay inside one utterance. Whether each slot was active is kept per ring
+ * sequence for the outputs, which read the slot later through their cursor.
+ * The slots where speech started and ended are queued in a preallocated ring
+ * too, for events drained on another thread.
+ */
+class VoiceActivity implements PcmListener {
+  static final double DEFAULT_THRESHOLD_DB = -45.0;
+  static final int DEFAULT_HANGOVER_MS = 300;
+
+  /**
+   * What the outputs do with inactive slots.
+   */
+  enum Silence {
+    KEEP, PAUSE, TRIM;
+
+    static Silence fromName(String name) {
+      switch (name) {
+        case "pause":
+          return PAUSE;
+        case "trim":
+          return TRIM;
+        default:
+          return KEEP;
+      }
+    }
+  }
+
+  final Silence silence;
+  private final double mThresholdSquare;
+  private final long mHangoverSamples;
+  private final boolean[] mActive;
+  private final long[] mTransitionSeqs;
+  private final int mMask;
+  private boolean mSpeech = false;
+  private long mSilentSamples = 0;
+  private volatile int mTransitions = 0; // odd while in speech
+
+  /**
+   * @param slots capacity of the ring the outputs read from
+   */
+  VoiceActivity(int sampleRate, int channels, double thresholdDb, int hangoverMillis, int slots,
+      Silence silence) {
+    double amplitude = 32768.0 * Math.pow(10, thresholdDb / 20);
+    mThresholdSquare = amplitude * amplitude;
+    mHangoverSamples = (long) sampleRate * channels * hangoverMillis / 1000;
+    int capacity = Integer.highestOneBit(Math.max(2, slots) - 1) << 1;
+    mActive = new boolean[capacity];
+    mTransitionSeqs = new long[capacity];
+    mMask = capacity - 1;
+    this.silence = silence;
+  }
+
+  @Override
+  public void onPcm(ShortBuffer samples, int count, long seq) {
+    long sum = 0;
+    for (int i = 0; i < count; i++) {
+      int sample = samples.get(i);
+      sum += sample * sample;
+    }
+
+    if (count > 0 && (double) sum / count >= mThresholdSquare) {
+      mSilentSamples = 0;
+      if (!mSpeech) {
+        mSpeech = true;
+        addTransition(seq);
+      }
+    } else if (mSpeech) {
+      mSilentSamples += count;
+      if (mSilentSamples >= mHangoverSamples) {
+        mSpeech = false;
+        addTransition(seq);
+      }
+    }
+    // Published with the slot: the ring's volatile write orders it
+    mActive[(int) seq & mMask] = mSpeech;
+  }
+
+  private void addTransition(long seq) {
+    int index = mTransitions;
+    mTransitionSeqs[index & mMask] = seq;
+    mTransitions = index + 1;
+  }
+
+  /**
+   * Whether slot seq was speech or hangover. Only meaningful while the
+   * ring still holds seq.
+   */
+  boolean isActive(long seq) {
+    return mActive[(int) seq & mMask];
+  }
+
+  /**
+   * Speech starts plus ends so far; odd while speech is going on. Even
+   * indexes are starts, odd ones ends.
+   */
+  int transitions() {
+    return mTransitions;
+  }
+
+  /**
+   * Oldest transition index {@link #transitionSeq} still holds.
+   */
+  int oldestTransition() {
+    return Math.max(0, mTransitions - mTransitionSeqs.length + 1);
+  }
+
+  /**
+   * Ring sequence of the slot transition index happened in, or -1 if newer
+   * transitions overwrote it.
+   */
+  long transitionSeq(int index) {
+    long seq = mTransitionSeqs[index & mMask];
+    // Checked after the read, the slot is only reused once the count moved past it
+    return mTransitions - index < mTransitionSeqs.length ? seq : -1;
+  }
+}
@@ -0,0 +1,48 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AacFormatTest {
+  @Test
+  public void sampleRateIndexes() {
+    assertEquals(0, AacFormat.sampleRateIndex(96000));
+    assertEquals(3, AacFormat.sampleRateIndex(48000));
+    assertEquals(4, AacFormat.sampleRateIndex(44100));
+    assertEquals(11, AacFormat.sampleRateIndex(8000));
+    assertEquals(-1, AacFormat.sampleRateIndex(44000));
+  }
+
+  @Test
+  public void profilesAndOutputs() {
+    assertEquals(2, AacFormat.Profile.fromName("lc").objectType);
+    assertEquals(5, AacFormat.Profile.fromName("he").objectType);
+    assertEquals(29, AacFormat.Profile.fromName("hev2").objectType);
+    assertEquals(AacFormat.Profile.LC, AacFormat.Profile.fromName("other"));
+
+    assertEquals(AacFormat.Output.MP4, AacFormat.Output.fromPath("a/b.m4a"));
+    assertEquals(AacFormat.Output.MP4, AacFormat.Output.fromPath("b.mp4"));
+    assertEquals(AacFormat.Output.ADTS, AacFormat.Output.fromPath("b.aac"));
+    assertNull(AacFormat.Output.fromPath("b.wav"));
+  }
+
+  @Test
+  public void adtsHeaderFields() {
+    byte[] header = new byte[AacFormat.ADTS_HEADER_BYTES];
+    int payload = 371;
+    AacFormat.adtsHeader(header, payload, AacFormat.sampleRateIndex(44100), 2);
+
+    int frameBytes = payload + AacFormat.ADTS_HEADER_BYTES;
+    assertEquals(0xFFF, ((header[0] & 0xFF) << 4) | ((header[1] & 0xF0) >> 4)); // syncword
+    assertEquals(1, header[1] & 0x01); // no CRC
+    assertEquals(1, (header[2] & 0xC0) >> 6); // profile LC - 1
+    assertEquals(4, (header[2] & 0x3C) >> 2); // 44.1 kHz
+    assertEquals(2, ((header[2] & 0x01) << 2) | ((header[3] & 0xC0) >> 6)); // channels
+    assertEquals(frameBytes,
+        ((header[3] & 0x03) << 11) | ((header[4] & 0xFF) << 3) | ((header[5] & 0xE0) >> 5));
+    assertEquals(0x7FF, ((header[5] & 0x1F) << 6) | ((header[6] & 0xFC) >> 2)); // VBR fullness
+    assertEquals(0, header[6] & 0x03); // one raw data block
+  }
+}
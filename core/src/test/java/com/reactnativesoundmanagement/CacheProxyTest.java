@@ -0,0 +1,187 @@
+package com.reactnativesoundmanagement;
+
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpExchange;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Random;
+import java.util.Arrays;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.HttpURLConnection;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CacheProxyTest {
+  private static final byte[] BODY = new byte[300 * 1024];
+
+  static {
+    new Random(3).nextBytes(BODY);
+  }
+
+  @Rule
+  public TemporaryFolder mFolder = new TemporaryFolder();
+
+  private final AtomicInteger mHits = new AtomicInteger();
+  private final ExecutorService mOriginExecutor = Executors.newCachedThreadPool();
+  private HttpServer mOrigin;
+  private CacheProxy mProxy;
+  private File mDir;
+
+  @Before
+  public void setUp() throws IOException {
+    mOrigin = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    mOrigin.createContext("/sized", new Origin(true));
+    mOrigin.createContext("/unsized", new Origin(false));
+    mOrigin.setExecutor(mOriginExecutor);
+    mOrigin.start();
+    mDir = new File(mFolder.getRoot(), "streams");
+    mProxy = new CacheProxy(mDir, 10 * 1024 * 1024);
+  }
+
+  @After
+  public void tearDown() {
+    mProxy.shutdown();
+    mOrigin.stop(0);
+    mOriginExecutor.shutdownNow();
+  }
+
+  private class Origin implements HttpHandler {
+    private final boolean mSized;
+
+    Origin(boolean sized) {
+      mSized = sized;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      mHits.incrementAndGet();
+      exchange.getResponseHeaders().set("Content-Type", "audio/mpeg");
+      // 0 makes the response chunked, without a Content-Length
+      exchange.sendResponseHeaders(200, mSized ? BODY.length : 0);
+      OutputStream out = exchange.getResponseBody();
+      out.write(BODY);
+      out.close();
+    }
+  }
+
+  private String origin(String path) {
+    return "http://127.0.0.1:" + mOrigin.getAddress().getPort() + path;
+  }
+
+  private static HttpURLConnection open(String url, String range) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    if (range != null)
+      connection.setRequestProperty("Range", range);
+    return connection;
+  }
+
+  private static byte[] read(HttpURLConnection connection) throws IOException {
+    InputStream in = connection.getInputStream();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = in.read(buffer)) != -1)
+      out.write(buffer, 0, read);
+    in.close();
+    return out.toByteArray();
+  }
+
+  private void awaitCached(String url) throws InterruptedException {
+    File data = new File(mDir, DiskCache.key(url));
+    File meta = new File(mDir, DiskCache.key(url) + ".meta");
+    for (int i = 0; i < 200 && !(data.exists() && meta.exists()); i++)
+      Thread.sleep(10);
+    assertTrue("not cached: " + url, data.exists());
+  }
+
+  @Test
+  public void rejectsRequestsWithoutToken() throws IOException {
+    String proxied = mProxy.proxyUrl(origin("/sized"));
+    URL url = new URL(proxied);
+    String path = url.getPath();
+    String withoutToken = "http://127.0.0.1:" + url.getPort() + path.substring(path.indexOf('/', 1));
+
+    assertEquals(403, open(withoutToken, null).getResponseCode());
+    assertEquals(0, mHits.get());
+  }
+
+  @Test
+  public void servesRepeatPlaysFromDisk() throws Exception {
+    String url = origin("/sized");
+    assertArrayEquals(BODY, read(open(mProxy.proxyUrl(url), null)));
+    awaitCached(url);
+
+    HttpURLConnection second = open(mProxy.proxyUrl(url), null);
+    assertArrayEquals(BODY, read(second));
+    assertEquals("audio/mpeg", second.getContentType());
+    assertEquals(1, mHits.get());
+  }
+
+  @Test
+  public void answersByteRanges() throws Exception {
+    HttpURLConnection connection = open(mProxy.proxyUrl(origin("/sized")), "bytes=1000-1999");
+    assertEquals(206, connection.getResponseCode());
+    assertEquals("bytes 1000-1999/" + BODY.length, connection.getHeaderField("Content-Range"));
+    assertArrayEquals(Arrays.copyOfRange(BODY, 1000, 2000), read(connection));
+  }
+
+  @Test
+  public void cachesOriginWithoutLength() throws Exception {
+    String url = origin("/unsized");
+    // First play passes through while the cache downloads next to it
+    assertArrayEquals(BODY, read(open(mProxy.proxyUrl(url), null)));
+    awaitCached(url);
+    int hits = mHits.get();
+
+    HttpURLConnection second = open(mProxy.proxyUrl(url), null);
+    assertArrayEquals(BODY, read(second));
+    assertEquals(BODY.length, second.getContentLengthLong());
+    assertEquals(hits, mHits.get());
+  }
+
+  @Test
+  public void unsizedOriginLargerThanCacheIsNotRetried() throws Exception {
+    mProxy.shutdown();
+    mProxy = new CacheProxy(mDir, BODY.length / 2);
+    String url = origin("/unsized");
+
+    assertArrayEquals(BODY, read(open(mProxy.proxyUrl(url), null)));
+    for (int i = 0; i < 200 && mHits.get() < 2; i++)
+      Thread.sleep(10);
+    Thread.sleep(100);
+    int hits = mHits.get();
+
+    assertArrayEquals(BODY, read(open(mProxy.proxyUrl(url), null)));
+    // Only the pass through, no new download
+    assertEquals(hits + 1, mHits.get());
+  }
+
+  @Test
+  public void refusesUrlsAfterShutdown() {
+    mProxy.shutdown();
+    try {
+      mProxy.proxyUrl(origin("/sized"));
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
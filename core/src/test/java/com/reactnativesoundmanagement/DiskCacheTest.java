@@ -0,0 +1,75 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DiskCacheTest {
+  @Rule
+  public TemporaryFolder mFolder = new TemporaryFolder();
+
+  private File file(String name, int bytes, long modified) throws IOException {
+    File file = mFolder.newFile(name);
+    FileOutputStream out = new FileOutputStream(file);
+    out.write(new byte[bytes]);
+    out.close();
+    file.setLastModified(modified);
+    return file;
+  }
+
+  @Test
+  public void keyIsStablePerUrl() {
+    String key = DiskCache.key("https://example.com/a.mp3");
+    assertEquals(32, key.length());
+    assertEquals(key, DiskCache.key("https://example.com/a.mp3"));
+    assertNotEquals(key, DiskCache.key("https://example.com/b.mp3"));
+  }
+
+  @Test
+  public void trimDropsOldestFirst() throws IOException {
+    File old = file("old", 100, 1000000);
+    File mid = file("mid", 100, 2000000);
+    File recent = file("recent", 100, 3000000);
+
+    DiskCache.trim(mFolder.getRoot(), 200, null);
+    assertFalse(old.exists());
+    assertTrue(mid.exists());
+    assertTrue(recent.exists());
+  }
+
+  @Test
+  public void trimSparesWhatPolicyKeepsAndCountsCompanions() throws IOException {
+    final File pinned = file("pinned", 100, 1000000);
+    File old = file("old", 100, 2000000);
+    final File companion = file("old.meta", 100, 5000000);
+    File recent = file("recent", 100, 3000000);
+
+    DiskCache.trim(mFolder.getRoot(), 200, new DiskCache.Policy() {
+      @Override
+      public boolean evictable(File file) {
+        return !file.equals(pinned) && !file.equals(companion);
+      }
+
+      @Override
+      public long evicted(File file) {
+        File meta = new File(file.getPath() + ".meta");
+        long bytes = meta.length();
+        meta.delete();
+        return bytes;
+      }
+    });
+    assertTrue(pinned.exists());
+    assertFalse(old.exists());
+    assertFalse(companion.exists());
+    assertTrue(recent.exists());
+  }
+}
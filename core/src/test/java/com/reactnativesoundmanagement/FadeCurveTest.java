@@ -0,0 +1,64 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FadeCurveTest {
+  @Test
+  public void everyCurveGoesFromOutgoingToIncoming() {
+    for (FadeCurve curve : FadeCurve.values()) {
+      assertEquals(0.0, curve.fadeIn(0), 1e-9);
+      assertEquals(1.0, curve.fadeIn(1), 1e-9);
+      assertEquals(1.0, curve.fadeOut(0), 1e-9);
+      assertEquals(0.0, curve.fadeOut(1), 1e-9);
+    }
+  }
+
+  @Test
+  public void equalPowerKeepsTotalPower() {
+    for (int i = 0; i <= 10; i++) {
+      double t = i / 10.0;
+      double in = FadeCurve.EQUAL_POWER.fadeIn(t);
+      double out = FadeCurve.EQUAL_POWER.fadeOut(t);
+      assertEquals(1.0, in * in + out * out, 1e-9);
+    }
+  }
+
+  @Test
+  public void amplitudeCurvesMeetHalfway() {
+    assertEquals(0.5, FadeCurve.LINEAR.fadeIn(0.5), 1e-9);
+    assertEquals(0.5, FadeCurve.S_CURVE.fadeIn(0.5), 1e-9);
+    assertEquals(0.5, FadeCurve.S_CURVE.fadeOut(0.5), 1e-9);
+  }
+
+  @Test
+  public void fromName() {
+    assertEquals(FadeCurve.EQUAL_POWER, FadeCurve.fromName("equalPower"));
+    assertEquals(FadeCurve.S_CURVE, FadeCurve.fromName("sCurve"));
+    assertEquals(FadeCurve.LINEAR, FadeCurve.fromName("linear"));
+    assertEquals(FadeCurve.LINEAR, FadeCurve.fromName("unknown"));
+  }
+
+  @Test
+  public void timesEndExactlyAtOne() {
+    float[] times = FadeCurve.times(7);
+    assertEquals(7, times.length);
+    assertEquals(0f, times[0], 0);
+    assertEquals(1f, times[6], 0);
+    for (int i = 1; i < times.length; i++)
+      assertEquals(1f / 6, times[i] - times[i - 1], 1e-6);
+  }
+
+  @Test
+  public void gainsFollowTheCurve() {
+    float[] times = FadeCurve.times(5);
+    float[] in = FadeCurve.EQUAL_POWER.gains(times, true);
+    float[] out = FadeCurve.EQUAL_POWER.gains(times, false);
+    for (int i = 0; i < times.length; i++) {
+      assertEquals(FadeCurve.EQUAL_POWER.fadeIn(times[i]), in[i], 1e-6);
+      assertEquals(FadeCurve.EQUAL_POWER.fadeOut(times[i]), out[i], 1e-6);
+      assertEquals(in[i], out[out.length - 1 - i], 1e-6);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+  @Test
+  public void emptyHistogramReportsZero() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.count());
+    assertEquals(0.0, histogram.meanMillis(), 0);
+    assertEquals(0.0, histogram.percentileMillis(0.5), 0);
+  }
+
+  @Test
+  public void countMeanAndMax() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(1000);
+    histogram.record(3000);
+    assertEquals(2, histogram.count());
+    assertEquals(2.0, histogram.meanMillis(), 1e-9);
+    assertEquals(3.0, histogram.maxMillis(), 1e-9);
+  }
+
+  @Test
+  public void percentilesWithinOneBucket() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int ms = 1; ms <= 100; ms++)
+      histogram.record(ms * 1000L);
+
+    assertWithin(50, histogram.percentileMillis(0.5));
+    assertWithin(90, histogram.percentileMillis(0.9));
+    assertWithin(99, histogram.percentileMillis(0.99));
+    assertEquals(100.0, histogram.percentileMillis(1.0), 1e-9);
+  }
+
+  @Test
+  public void percentileNeverExceedsMax() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(12345);
+    assertEquals(12.345, histogram.percentileMillis(0.5), 1e-9);
+  }
+
+  @Test
+  public void negativeSamplesCountAsZero() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-500);
+    assertEquals(1, histogram.count());
+    assertEquals(0.0, histogram.meanMillis(), 0);
+    assertEquals(0.0, histogram.maxMillis(), 0);
+  }
+
+  @Test
+  public void resetClearsEverything() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(5000);
+    histogram.reset();
+    assertEquals(0, histogram.count());
+    assertEquals(0.0, histogram.maxMillis(), 0);
+    assertEquals(0.0, histogram.percentileMillis(0.99), 0);
+  }
+
+  private static void assertWithin(double expected, double actual) {
+    assertTrue(actual + " not within 10% of " + expected,
+        actual >= expected && actual <= expected * 1.1);
+  }
+}
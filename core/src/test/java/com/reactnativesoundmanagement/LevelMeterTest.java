@@ -0,0 +1,68 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Test;
+
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+public class LevelMeterTest {
+  private static final int RATE = 8000;
+  private static final int WINDOW_SAMPLES = RATE / 100; // 10 ms mono
+
+  private static ShortBuffer square(short value, int count) {
+    ShortBuffer samples = ShortBuffer.allocate(count);
+    for (int i = 0; i < count; i++)
+      samples.put(i, (i & 1) == 0 ? value : (short) -value);
+    return samples;
+  }
+
+  @Test
+  public void fullScaleSquareIsZeroDb() {
+    LevelMeter meter = new LevelMeter(RATE, 1, 10);
+    meter.onPcm(square(Short.MAX_VALUE, WINDOW_SAMPLES), WINDOW_SAMPLES, 0);
+    assertEquals(0.0, meter.rmsDb(), 0.01);
+    assertEquals(0.0, meter.readPeakDb(), 0.01);
+  }
+
+  @Test
+  public void silenceIsTheFloor() {
+    LevelMeter meter = new LevelMeter(RATE, 1, 10);
+    meter.onPcm(square((short) 0, WINDOW_SAMPLES), WINDOW_SAMPLES, 0);
+    assertEquals(LevelMeter.SILENCE_DB, meter.rmsDb(), 0);
+    assertEquals(LevelMeter.SILENCE_DB, meter.readPeakDb(), 0);
+  }
+
+  @Test
+  public void rmsOnlyChangesOnCompleteWindows() {
+    LevelMeter meter = new LevelMeter(RATE, 1, 10);
+    meter.onPcm(square((short) 16384, WINDOW_SAMPLES), WINDOW_SAMPLES, 0);
+    double half = meter.rmsDb();
+    assertEquals(-6.02, half, 0.01);
+
+    // Most of a louder window, then the rest of it
+    meter.onPcm(square(Short.MAX_VALUE, WINDOW_SAMPLES - 2), WINDOW_SAMPLES - 2, 1);
+    assertEquals(half, meter.rmsDb(), 0);
+    meter.onPcm(square(Short.MAX_VALUE, 2), 2, 2);
+    assertEquals(0.0, meter.rmsDb(), 0.01);
+  }
+
+  @Test
+  public void peakResetsOnRead() {
+    LevelMeter meter = new LevelMeter(RATE, 1, 10);
+    meter.onPcm(square(Short.MAX_VALUE, WINDOW_SAMPLES), WINDOW_SAMPLES, 0);
+    meter.onPcm(square((short) 3277, WINDOW_SAMPLES), WINDOW_SAMPLES, 1);
+    assertEquals(0.0, meter.readPeakDb(), 0.01);
+    assertEquals(LevelMeter.SILENCE_DB, meter.readPeakDb(), 0);
+
+    meter.onPcm(square((short) 3277, WINDOW_SAMPLES), WINDOW_SAMPLES, 2);
+    assertEquals(-20.0, meter.readPeakDb(), 0.01);
+  }
+
+  @Test
+  public void toDbClampsAtTheFloor() {
+    assertEquals(LevelMeter.SILENCE_DB, LevelMeter.toDb(0), 0);
+    assertEquals(LevelMeter.SILENCE_DB, LevelMeter.toDb(1e-12), 0);
+    assertEquals(0.0, LevelMeter.toDb(32768), 0);
+  }
+}
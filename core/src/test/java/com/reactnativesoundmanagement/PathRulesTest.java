@@ -0,0 +1,25 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PathRulesTest {
+  @Test
+  public void resourceNameStripsTheExtension() {
+    assertEquals("beep", PathRules.resourceName("beep.mp3"));
+    assertEquals("beep", PathRules.resourceName("beep"));
+  }
+
+  @Test
+  public void candidatesGoDataSdcardThenPath() {
+    assertArrayEquals(new String[] { "/data/a.mp3", "/sdcard/a.mp3", "a.mp3" },
+        PathRules.candidates("/data", "/sdcard", "a.mp3"));
+  }
+
+  @Test
+  public void extension() {
+    assertEquals("aac", PathRules.extension("dir/voice.note.aac"));
+  }
+}
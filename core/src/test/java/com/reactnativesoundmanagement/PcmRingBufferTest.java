@@ -0,0 +1,126 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PcmRingBufferTest {
+  private static void publish(PcmRingBuffer ring, int value, int bytes) {
+    ByteBuffer slot = ring.writeSlot();
+    for (int i = 0; i < bytes; i++)
+      slot.put(i, (byte) value);
+    ring.publish(bytes);
+  }
+
+  @Test
+  public void capacityRoundsUpToPowerOfTwo() {
+    assertEquals(8, new PcmRingBuffer(5, 4).capacity());
+    assertEquals(8, new PcmRingBuffer(8, 4).capacity());
+    assertEquals(2, new PcmRingBuffer(1, 4).capacity());
+  }
+
+  @Test
+  public void cursorReadsSlotsInOrder() {
+    PcmRingBuffer ring = new PcmRingBuffer(4, 4);
+    PcmRingBuffer.Cursor cursor = ring.newCursor();
+    assertEquals(-1, cursor.next());
+
+    publish(ring, 1, 4);
+    publish(ring, 2, 3);
+    assertEquals(2, cursor.lag());
+
+    long seq = cursor.next();
+    assertEquals(0, seq);
+    ByteBuffer view = cursor.view(seq);
+    assertEquals(4, view.remaining());
+    assertEquals(1, view.get(0));
+    assertTrue(cursor.advance(seq));
+
+    seq = cursor.next();
+    assertEquals(1, seq);
+    assertEquals(3, cursor.view(seq).remaining());
+    assertEquals(2, cursor.view(seq).get(0));
+    assertTrue(cursor.advance(seq));
+
+    assertEquals(-1, cursor.next());
+    assertEquals(0, cursor.lag());
+    assertEquals(0, cursor.dropped());
+  }
+
+  @Test
+  public void wrapsAroundTheSlots() {
+    PcmRingBuffer ring = new PcmRingBuffer(4, 4);
+    PcmRingBuffer.Cursor cursor = ring.newCursor();
+
+    for (int i = 0; i < 10; i++) {
+      publish(ring, i, 4);
+      long seq = cursor.next();
+      assertEquals(i, seq);
+      assertEquals(i, cursor.view(seq).get(0));
+      assertTrue(cursor.advance(seq));
+    }
+    assertEquals(0, cursor.dropped());
+  }
+
+  @Test
+  public void overrunSkipsToOldestHeldSlotAndCountsDrops() {
+    PcmRingBuffer ring = new PcmRingBuffer(4, 4);
+    PcmRingBuffer.Cursor cursor = ring.newCursor();
+
+    for (int i = 0; i < 10; i++)
+      publish(ring, i, 4);
+
+    // 10 published, 4 slots: 0..6 are gone, the slot being written next
+    // is not readable either, so the oldest safe slot is 7
+    long seq = cursor.next();
+    assertEquals(7, seq);
+    assertEquals(7, cursor.dropped());
+    assertEquals(7, cursor.view(seq).get(0));
+    assertTrue(cursor.advance(seq));
+  }
+
+  @Test
+  public void slotOverwrittenWhileReadingIsRejected() {
+    PcmRingBuffer ring = new PcmRingBuffer(4, 4);
+    PcmRingBuffer.Cursor cursor = ring.newCursor();
+    publish(ring, 1, 4);
+
+    long seq = cursor.next();
+    cursor.view(seq);
+    for (int i = 0; i < 4; i++)
+      publish(ring, 2, 4);
+
+    assertFalse(ring.isValid(seq));
+    assertFalse(cursor.advance(seq));
+    assertEquals(1, cursor.dropped());
+  }
+
+  @Test
+  public void cursorsAreIndependent() {
+    PcmRingBuffer ring = new PcmRingBuffer(4, 4);
+    PcmRingBuffer.Cursor fast = ring.newCursor();
+    PcmRingBuffer.Cursor slow = ring.newCursor();
+
+    publish(ring, 1, 4);
+    assertTrue(fast.advance(fast.next()));
+    assertEquals(-1, fast.next());
+    assertEquals(0, slow.next());
+  }
+
+  @Test
+  public void cursorWithBackStartsAtHeldHistory() {
+    PcmRingBuffer ring = new PcmRingBuffer(8, 4);
+    for (int i = 0; i < 20; i++)
+      publish(ring, i, 4);
+
+    assertEquals(17, ring.newCursor(3).next());
+    // Capped at capacity - 1 slots back
+    assertEquals(13, ring.newCursor(100).next());
+    assertEquals(-1, ring.newCursor(0).next());
+    assertEquals(0, new PcmRingBuffer(8, 4).newCursor(5).lag());
+  }
+}
@@ -0,0 +1,66 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Test;
+
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PeakReducerTest {
+  private static ShortBuffer samples(int... values) {
+    ShortBuffer buffer = ShortBuffer.allocate(values.length);
+    for (int i = 0; i < values.length; i++)
+      buffer.put(i, (short) values[i]);
+    return buffer;
+  }
+
+  @Test
+  public void spreadsFramesOverBuckets() {
+    PeakReducer reducer = new PeakReducer(2, 4);
+    reducer.add(samples(-100, 50, -20, 300), 4, 1);
+    assertArrayEquals(new short[] { -100, -20 }, reducer.min());
+    assertArrayEquals(new short[] { 50, 300 }, reducer.max());
+  }
+
+  @Test
+  public void oneSidedBucketsDontReachZero() {
+    PeakReducer reducer = new PeakReducer(2, 4);
+    reducer.add(samples(100, 200, -300, -50), 4, 1);
+    assertArrayEquals(new short[] { 100, -300 }, reducer.min());
+    assertArrayEquals(new short[] { 200, -50 }, reducer.max());
+  }
+
+  @Test
+  public void channelsShareTheirFramesBucket() {
+    PeakReducer reducer = new PeakReducer(1, 2);
+    reducer.add(samples(10, -40, 30, 20), 4, 2);
+    assertEquals(-40, reducer.min()[0]);
+    assertEquals(30, reducer.max()[0]);
+  }
+
+  @Test
+  public void bucketsSpanSeveralCalls() {
+    PeakReducer reducer = new PeakReducer(2, 4);
+    reducer.add(samples(500), 1, 1);
+    reducer.add(samples(700, 600), 2, 1);
+    reducer.add(samples(800), 1, 1);
+    assertArrayEquals(new short[] { 500, 600 }, reducer.min());
+    assertArrayEquals(new short[] { 700, 800 }, reducer.max());
+  }
+
+  @Test
+  public void framesPastTheEstimateLandInTheLastBucket() {
+    PeakReducer reducer = new PeakReducer(2, 2);
+    reducer.add(samples(1, 2, 3, 900), 4, 1);
+    assertEquals(900, reducer.max()[1]);
+  }
+
+  @Test
+  public void unreachedBucketsStayZero() {
+    PeakReducer reducer = new PeakReducer(4, 8);
+    reducer.add(samples(-5, -6), 2, 1);
+    assertArrayEquals(new short[] { -6, 0, 0, 0 }, reducer.min());
+    assertArrayEquals(new short[] { -5, 0, 0, 0 }, reducer.max());
+  }
+}
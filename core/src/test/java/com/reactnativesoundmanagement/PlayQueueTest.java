@@ -0,0 +1,145 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PlayQueueTest {
+  private static List<PlayQueue.Item> items(int count) {
+    List<PlayQueue.Item> items = new ArrayList<>();
+    for (int i = 0; i < count; i++)
+      items.add(new PlayQueue.Item("track" + i + ".mp3", Collections.<String, String>emptyMap()));
+    return items;
+  }
+
+  private static PlayQueue queue(int count) {
+    PlayQueue queue = new PlayQueue(new Random(7));
+    queue.set(items(count), 0);
+    return queue;
+  }
+
+  @Test
+  public void emptyQueueHasNoCurrent() {
+    PlayQueue queue = new PlayQueue();
+    assertTrue(queue.isEmpty());
+    assertEquals(-1, queue.currentIndex());
+    assertNull(queue.current());
+    assertEquals(-1, queue.completionIndex());
+    assertEquals(-1, queue.skipIndex(1));
+  }
+
+  @Test
+  public void setClampsStartIndex() {
+    PlayQueue queue = new PlayQueue();
+    queue.set(items(3), 10);
+    assertEquals(2, queue.currentIndex());
+    queue.set(items(3), -4);
+    assertEquals(0, queue.currentIndex());
+  }
+
+  @Test
+  public void walksListOrderWithoutRepeat() {
+    PlayQueue queue = queue(3);
+    assertEquals(1, queue.completionIndex());
+    queue.moveTo(2);
+    assertEquals(-1, queue.completionIndex());
+    assertEquals(-1, queue.skipIndex(1));
+    assertEquals(1, queue.skipIndex(-1));
+    queue.moveTo(0);
+    assertEquals(-1, queue.skipIndex(-1));
+  }
+
+  @Test
+  public void repeatAllWrapsBothWays() {
+    PlayQueue queue = queue(3);
+    queue.setRepeat(PlayQueue.Repeat.ALL);
+    assertEquals(2, queue.skipIndex(-1));
+    queue.moveTo(2);
+    assertEquals(0, queue.completionIndex());
+    assertEquals(1, queue.skipIndex(5));
+  }
+
+  @Test
+  public void repeatOneReplaysOnCompletionButSkipsNormally() {
+    PlayQueue queue = queue(3);
+    queue.moveTo(1);
+    queue.setRepeat(PlayQueue.Repeat.ONE);
+    assertEquals(1, queue.completionIndex());
+    assertEquals(2, queue.skipIndex(1));
+    assertEquals(0, queue.skipIndex(-1));
+  }
+
+  @Test
+  public void repeatFromName() {
+    assertEquals(PlayQueue.Repeat.ONE, PlayQueue.Repeat.fromName("one"));
+    assertEquals(PlayQueue.Repeat.ALL, PlayQueue.Repeat.fromName("all"));
+    assertEquals(PlayQueue.Repeat.NONE, PlayQueue.Repeat.fromName("bogus"));
+  }
+
+  @Test
+  public void shuffleKeepsCurrentFirstAndVisitsEveryItemOnce() {
+    PlayQueue queue = queue(20);
+    queue.moveTo(5);
+    queue.setShuffle(true);
+    assertEquals(5, queue.currentIndex());
+
+    HashSet<Integer> seen = new HashSet<>();
+    seen.add(queue.currentIndex());
+    int next;
+    while ((next = queue.completionIndex()) >= 0) {
+      assertTrue("visited twice: " + next, seen.add(next));
+      queue.moveTo(next);
+    }
+    assertEquals(20, seen.size());
+  }
+
+  @Test
+  public void unshuffleReturnsToListOrderAtCurrent() {
+    PlayQueue queue = queue(10);
+    queue.setShuffle(true);
+    queue.moveTo(queue.skipIndex(3));
+    int current = queue.currentIndex();
+
+    queue.setShuffle(false);
+    assertEquals(current, queue.currentIndex());
+    assertEquals(current + 1 < 10 ? current + 1 : -1, queue.skipIndex(1));
+  }
+
+  @Test
+  public void appendWhileShufflingLandsInUnplayedPart() {
+    PlayQueue queue = queue(5);
+    queue.setShuffle(true);
+    queue.append(items(5));
+    assertEquals(10, queue.size());
+
+    HashSet<Integer> seen = new HashSet<>();
+    seen.add(queue.currentIndex());
+    int next;
+    while ((next = queue.completionIndex()) >= 0) {
+      seen.add(next);
+      queue.moveTo(next);
+    }
+    assertEquals(10, seen.size());
+  }
+
+  @Test
+  public void appendToEmptyQueueMakesFirstCurrent() {
+    PlayQueue queue = new PlayQueue();
+    queue.append(items(2));
+    assertEquals(0, queue.currentIndex());
+    assertEquals("track0.mp3", queue.current().path);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void moveToRejectsUnknownIndex() {
+    queue(3).moveTo(3);
+  }
+}
@@ -0,0 +1,44 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlaybackStateTest {
+  @Test
+  public void anythingButDestroyedCanFailOrBeDestroyed() {
+    for (PlaybackState state : PlaybackState.values()) {
+      if (state == PlaybackState.DESTROYED)
+        continue;
+      assertTrue(state.canMoveTo(PlaybackState.DESTROYED));
+      assertTrue(state.canMoveTo(PlaybackState.ERROR));
+      assertTrue(state.canMoveTo(PlaybackState.IDLE));
+    }
+  }
+
+  @Test
+  public void nothingLeavesDestroyed() {
+    for (PlaybackState state : PlaybackState.values())
+      assertFalse(PlaybackState.DESTROYED.canMoveTo(state));
+  }
+
+  @Test
+  public void playbackNeedsPreparedMedia() {
+    assertFalse(PlaybackState.IDLE.canMoveTo(PlaybackState.PLAYING));
+    assertFalse(PlaybackState.PREPARING.canMoveTo(PlaybackState.PLAYING));
+    assertFalse(PlaybackState.ERROR.canMoveTo(PlaybackState.PAUSED));
+    assertTrue(PlaybackState.IDLE.canMoveTo(PlaybackState.PREPARING));
+    assertTrue(PlaybackState.PREPARING.canMoveTo(PlaybackState.PREPARED));
+    assertTrue(PlaybackState.PREPARED.canMoveTo(PlaybackState.PLAYING));
+  }
+
+  @Test
+  public void playPauseStopAndReprepare() {
+    assertTrue(PlaybackState.PLAYING.canMoveTo(PlaybackState.PAUSED));
+    assertTrue(PlaybackState.PAUSED.canMoveTo(PlaybackState.PLAYING));
+    assertTrue(PlaybackState.PLAYING.canMoveTo(PlaybackState.PREPARED));
+    assertTrue(PlaybackState.PAUSED.canMoveTo(PlaybackState.PREPARING));
+    assertFalse(PlaybackState.PREPARED.canMoveTo(PlaybackState.PAUSED));
+  }
+}
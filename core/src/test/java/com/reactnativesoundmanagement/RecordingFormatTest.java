@@ -0,0 +1,30 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RecordingFormatTest {
+  @Test
+  public void containersByName() {
+    assertEquals(RecordingFormat.Container.AAC_ADTS, RecordingFormat.Container.fromName("aac"));
+    assertEquals(RecordingFormat.Container.MPEG_4, RecordingFormat.Container.fromName("mp4"));
+    assertEquals(RecordingFormat.Container.WEBM, RecordingFormat.Container.fromName("ogg"));
+    assertEquals(RecordingFormat.Container.AMR_WB, RecordingFormat.Container.fromName("amr"));
+    assertEquals(RecordingFormat.Container.DEFAULT, RecordingFormat.Container.fromName("wav"));
+  }
+
+  @Test
+  public void encodersByName() {
+    assertEquals(RecordingFormat.Encoder.HE_AAC, RecordingFormat.Encoder.fromName("mp4"));
+    assertEquals(RecordingFormat.Encoder.VORBIS, RecordingFormat.Encoder.fromName("webm"));
+    assertEquals(RecordingFormat.Encoder.AMR_WB, RecordingFormat.Encoder.fromName("amr"));
+    assertEquals(RecordingFormat.Encoder.DEFAULT, RecordingFormat.Encoder.fromName("3gp"));
+  }
+
+  @Test
+  public void formatsFromPathUseTheExtension() {
+    assertEquals(RecordingFormat.Container.AAC_ADTS, RecordingFormat.Container.fromPath("notes/a.aac"));
+    assertEquals(RecordingFormat.Encoder.HE_AAC, RecordingFormat.Encoder.fromPath("notes/a.aac"));
+  }
+}
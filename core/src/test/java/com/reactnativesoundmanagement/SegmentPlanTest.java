@@ -0,0 +1,49 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentPlanTest {
+  @Test
+  public void numbersFilesBeforeTheExtension() {
+    SegmentPlan plan = new SegmentPlan("/data/talk.m4a", 1000, 0);
+    assertEquals("/data/talk_000.m4a", plan.path(0));
+    assertEquals("/data/talk_012.m4a", plan.path(12));
+    assertEquals("/data/talk_1234.m4a", plan.path(1234));
+  }
+
+  @Test
+  public void pathWithoutExtension() {
+    assertEquals("/data.dir/talk_001", new SegmentPlan("/data.dir/talk", 1000, 0).path(1));
+  }
+
+  @Test
+  public void withExtensionSwapsOnlyTheExtension() {
+    SegmentPlan plan = new SegmentPlan("/data/talk.m4a", 1000, 2000).withExtension("wav");
+    assertEquals("/data/talk_003.wav", plan.path(3));
+    assertEquals(1000, plan.maxMillis);
+    assertEquals(2000, plan.maxBytes);
+  }
+
+  @Test
+  public void enabledByEitherLimit() {
+    assertFalse(new SegmentPlan("a.wav", 0, 0).isEnabled());
+    assertFalse(new SegmentPlan("a.wav", -5, -5).isEnabled());
+    assertTrue(new SegmentPlan("a.wav", 10, 0).isEnabled());
+    assertTrue(new SegmentPlan("a.wav", 0, 10).isEnabled());
+  }
+
+  @Test
+  public void byteLimitTakesTheTighterLimitInWholeFrames() {
+    // 1 s of 44.1 kHz stereo 16 bit
+    assertEquals(176400, new SegmentPlan("a.wav", 1000, 0).byteLimit(176400, 4));
+    assertEquals(1000, new SegmentPlan("a.wav", 1000, 1003).byteLimit(176400, 4));
+    assertEquals(176400, new SegmentPlan("a.wav", 1000, 500000).byteLimit(176400, 4));
+    assertEquals(0, new SegmentPlan("a.wav", 0, 0).byteLimit(176400, 4));
+    // Never below one frame
+    assertEquals(4, new SegmentPlan("a.wav", 0, 1).byteLimit(176400, 4));
+  }
+}
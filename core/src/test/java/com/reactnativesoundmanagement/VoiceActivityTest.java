@@ -0,0 +1,103 @@
+package com.reactnativesoundmanagement;
+
+import org.junit.Test;
+
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VoiceActivityTest {
+  private static final int RATE = 16000;
+  private static final int SLOT_SAMPLES = RATE / 50; // 20 ms mono
+
+  private final ShortBuffer mLoud = fill((short) 8000);
+  private final ShortBuffer mQuiet = fill((short) 20);
+
+  private static ShortBuffer fill(short value) {
+    ShortBuffer samples = ShortBuffer.allocate(SLOT_SAMPLES);
+    for (int i = 0; i < SLOT_SAMPLES; i++)
+      samples.put(i, (i & 1) == 0 ? value : (short) -value);
+    return samples;
+  }
+
+  private static VoiceActivity detector(int hangoverMs) {
+    return new VoiceActivity(RATE, 1, VoiceActivity.DEFAULT_THRESHOLD_DB, hangoverMs, 16,
+        VoiceActivity.Silence.KEEP);
+  }
+
+  @Test
+  public void silenceStaysInactive() {
+    VoiceActivity vad = detector(100);
+    for (int seq = 0; seq < 5; seq++)
+      vad.onPcm(mQuiet, SLOT_SAMPLES, seq);
+    assertEquals(0, vad.transitions());
+    assertFalse(vad.isActive(4));
+  }
+
+  @Test
+  public void speechStartsOnLoudSlotAndEndsAfterHangover() {
+    VoiceActivity vad = detector(60); // three slots
+    vad.onPcm(mQuiet, SLOT_SAMPLES, 0);
+    vad.onPcm(mLoud, SLOT_SAMPLES, 1);
+    assertEquals(1, vad.transitions());
+    assertEquals(1, vad.transitionSeq(0));
+    assertTrue(vad.isActive(1));
+
+    vad.onPcm(mQuiet, SLOT_SAMPLES, 2);
+    vad.onPcm(mQuiet, SLOT_SAMPLES, 3);
+    assertEquals(1, vad.transitions());
+    assertTrue(vad.isActive(3));
+
+    vad.onPcm(mQuiet, SLOT_SAMPLES, 4);
+    assertEquals(2, vad.transitions());
+    assertEquals(4, vad.transitionSeq(1));
+    assertFalse(vad.isActive(4));
+    assertFalse(vad.isActive(0));
+  }
+
+  @Test
+  public void loudSlotInsideHangoverKeepsOneUtterance() {
+    VoiceActivity vad = detector(60);
+    vad.onPcm(mLoud, SLOT_SAMPLES, 0);
+    vad.onPcm(mQuiet, SLOT_SAMPLES, 1);
+    vad.onPcm(mQuiet, SLOT_SAMPLES, 2);
+    vad.onPcm(mLoud, SLOT_SAMPLES, 3);
+    vad.onPcm(mQuiet, SLOT_SAMPLES, 4);
+    assertEquals(1, vad.transitions());
+    for (int seq = 0; seq < 5; seq++)
+      assertTrue(vad.isActive(seq));
+  }
+
+  @Test
+  public void queuesEveryTransitionUntilOverwritten() {
+    VoiceActivity vad = new VoiceActivity(RATE, 1, VoiceActivity.DEFAULT_THRESHOLD_DB, 0, 4,
+        VoiceActivity.Silence.KEEP);
+    for (int seq = 0; seq < 6; seq++)
+      vad.onPcm((seq & 1) == 0 ? mLoud : mQuiet, SLOT_SAMPLES, seq);
+
+    // One transition per slot, the queue holds the last capacity - 1
+    assertEquals(6, vad.transitions());
+    assertEquals(3, vad.oldestTransition());
+    assertEquals(-1, vad.transitionSeq(2));
+    for (int i = 3; i < 6; i++)
+      assertEquals(i, vad.transitionSeq(i));
+  }
+
+  @Test
+  public void emptySlotCountsAsSilence() {
+    VoiceActivity vad = detector(0);
+    vad.onPcm(mLoud, SLOT_SAMPLES, 0);
+    vad.onPcm(mLoud, 0, 1);
+    assertEquals(2, vad.transitions());
+    assertFalse(vad.isActive(1));
+  }
+
+  @Test
+  public void silenceFromName() {
+    assertEquals(VoiceActivity.Silence.PAUSE, VoiceActivity.Silence.fromName("pause"));
+    assertEquals(VoiceActivity.Silence.TRIM, VoiceActivity.Silence.fromName("trim"));
+    assertEquals(VoiceActivity.Silence.KEEP, VoiceActivity.Silence.fromName("keep"));
+  }
+}
@@ -1,4 +1,5 @@
 import MediaStates    from './app/MediaStates'
 import SoundPlayer    from './app/SoundPlayer'
 import SoundRecorder  from './app/SoundRecorder'
-export default { MediaStates, SoundPlayer, SoundRecorder }
\ No newline at end of file
+import SoundEffect    from './app/SoundEffect'
+export default { MediaStates, SoundPlayer, SoundRecorder, SoundEffect }